@@ -0,0 +1,203 @@
+package handfinder;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for each hand detector, card parsing, the full search and the score bounds, over the same generated
+ * decks as BenchmarkDriver. Run them with "gradle jmh".
+ *
+ * Each call works on the next of the generated decks in turn, so no single deck gets all the attention. Detectors
+ * take cards out of the deck they are given, so each call copies its deck first; cloneDeck shows how much of the time
+ * that copy takes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandFinderBenchmark {
+    // A power of two, so the next deck can be picked with a mask
+    private static final int DECKS = 64;
+    private static final long SEED = 42;
+
+    @Param({"13", "52", "520", "10000"})
+    public int size;
+
+    private Deck[] decks;
+    private String[] lines;
+    private String[][] tokens;
+    private final ScoreBounds bounds = new ScoreBounds();
+    private int next;
+
+    /**
+     * Builds random decks, seeded by their size as in BenchmarkDriver, along with their text form.
+     */
+    @Setup(Level.Trial)
+    public void generateDecks() {
+        Random random = new Random(SEED + size);
+        decks = new Deck[DECKS];
+        lines = new String[DECKS];
+        tokens = new String[DECKS][];
+        for(int d = 0; d < DECKS; d++) {
+            Deck deck = new Deck();
+            ArrayList<String> cards = new ArrayList<String>();
+            for(int k = 0; k < size; k++) {
+                Card c = Card.fromIndex(random.nextInt(Deck.CARDS));
+                deck.add(c);
+                cards.add(c.getFacevalue() + c.getSuit());
+            }
+            decks[d] = deck;
+            tokens[d] = cards.toArray(new String[0]);
+            lines[d] = String.join(" ", cards);
+        }
+    }
+
+    private int nextDeck() {
+        next = (next + 1) & (DECKS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public long makeNewCard() {
+        long total = 0;
+        for(String token : tokens[nextDeck()])
+            total += Card.makeNewCard(token).getIndex();
+        return total;
+    }
+
+    @Benchmark
+    public int parseDeck() {
+        return CardParser.parseDeck(lines[nextDeck()], new Deck());
+    }
+
+    @Benchmark
+    public int cloneDeck() {
+        return new Deck(decks[nextDeck()]).size();
+    }
+
+    @Benchmark
+    public int checkEveryCardFlush() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkEveryCardFlush(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkRoyalFlush() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkRoyalFlush(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkStraightFlush() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkStraightFlush(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkFourOfAKind() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkFourOfAKind(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkFullHouse() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkFullHouse(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkFlush() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkFlush(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkStraight() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkStraight(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkThreeOfAKind() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkThreeOfAKind(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkPair() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkPair(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkTwoPair() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        HandFinder finder = new HandFinder(decks[i], false);
+        finder.checkPair(cards);
+        finder.checkTwoPair();
+        return cards.size();
+    }
+
+    @Benchmark
+    public int checkHighCard() {
+        int i = nextDeck();
+        Deck cards = new Deck(decks[i]);
+        new HandFinder(decks[i], false).checkHighCard(cards);
+        return cards.size();
+    }
+
+    @Benchmark
+    public int findHands() {
+        return new HandFinder(decks[nextDeck()], false).findHands();
+    }
+
+    @Benchmark
+    public int findPoints() {
+        return new HandFinder(decks[nextDeck()], false).findPoints();
+    }
+
+    @Benchmark
+    public int lowerBound() {
+        return bounds.lowerBound(decks[nextDeck()]);
+    }
+
+    @Benchmark
+    public int upperBound() {
+        return ScoreBounds.upperBound(decks[nextDeck()]);
+    }
+}
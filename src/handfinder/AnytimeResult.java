@@ -0,0 +1,101 @@
+package handfinder;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Best split of a deck that an AnytimeSolver has found so far, along with the highest total it has not yet ruled
+ * out. The gap between the two is how much better the best split could still be.
+ */
+public class AnytimeResult {
+    private final int points;
+    private final List<Hand> hands;
+    private final int upperbound;
+    private final boolean isoptimal;
+    private final long nodes;
+
+    /**
+     * Main constructor.
+     * @param points Total points of the hands
+     * @param hands Hands of the best split found, which are not copied
+     * @param upperbound Highest total not ruled out, no less than points
+     * @param isoptimal True if the search has proved no split beats this one
+     * @param nodes Calls to the exact search made so far
+     */
+    AnytimeResult(int points, List<Hand> hands, int upperbound, boolean isoptimal, long nodes) {
+        this.points = points;
+        this.hands = Collections.unmodifiableList(hands);
+        this.upperbound = isoptimal ? points : Math.max(points, upperbound);
+        this.isoptimal = isoptimal;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Checks the total points of the best split found.
+     * @return Total points
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the Hands of the best split found.
+     * @return Hands, which cannot be changed
+     */
+    public List<Hand> getHands() {
+        return hands;
+    }
+
+    /**
+     * Checks the highest total any split of the deck could still reach.
+     * @return Upper bound on the best total
+     */
+    public int getUpperBound() {
+        return upperbound;
+    }
+
+    /**
+     * Checks how many points better than this split the best one could be.
+     * @return Upper bound less the points found, 0 once the split is known to be best
+     */
+    public int getGap() {
+        return upperbound - points;
+    }
+
+    /**
+     * Checks the gap as a share of the upper bound.
+     * @return Gap divided by the upper bound, from 0 to 1
+     */
+    public double getRelativeGap() {
+        return upperbound == 0 ? 0 : (double) getGap() / upperbound;
+    }
+
+    /**
+     * Checks whether the split is known to be the best.
+     * @return True if no split of the deck beats this one
+     */
+    public boolean isOptimal() {
+        return isoptimal;
+    }
+
+    /**
+     * Checks how much searching went into this result.
+     * @return Calls to the exact search made so far, over every round
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Prints the Hands, the total and how far it could still be from the best.
+     */
+    public void print() {
+        for(Hand h : hands)
+            h.print();
+        System.out.println("Total points: " + points);
+        if(isoptimal)
+            System.out.println("Best possible total.");
+        else
+            System.out.printf("Upper bound: %d (gap %d, %.1f%%)%n", upperbound, getGap(), 100 * getRelativeGap());
+    }
+}
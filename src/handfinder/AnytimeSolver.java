@@ -0,0 +1,140 @@
+package handfinder;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores a deck within a time or search budget, for callers that cannot wait for the exact search to finish. The
+ * greedy split is found first, then the exact search runs until the budget is spent. The best split reached by then
+ * is returned, along with the highest total the search could not rule out, so the caller knows how far from the best
+ * it might be.
+ *
+ * The bound starts from ScoreBounds, and drops to the price of the deck once the exact search has priced its cards,
+ * which is charged to the budget like the rest of the search. The search then tries the highest total not yet ruled
+ * out first. Each total it rules out lowers the bound by 5 points, so the gap between the best split and the bound
+ * shrinks from both ends as the budget is spent, and the bound published is always the best one left.
+ *
+ * Each call to solve carries on from where the last one stopped, as the exact search keeps the states it has already
+ * solved. improveInBackground carries on with no budget on another thread, in slices that each publish what they
+ * found, so getBest can be polled meanwhile and keeps improving.
+ */
+public class AnytimeSolver {
+    // The background search runs in slices of this long at first, doubling up to the longest slice
+    private static final long FIRST_SLICE_NANOS = 1_000_000;
+    private static final long LONGEST_SLICE_NANOS = 64_000_000;
+
+    // Null if the deck is too large for the exact search, in which case the greedy split is all there is
+    private final ExactSolver solver;
+    // Held while the exact search runs, which is never on more than one thread at once
+    private final Object searchlock = new Object();
+    private long nodes;
+    private volatile AnytimeResult best;
+    private CompletableFuture<AnytimeResult> background;
+
+    /**
+     * Main constructor, which finds the greedy split straight away. Pricing the cards is left to the first search.
+     * @param deck Cards to score
+     */
+    public AnytimeSolver(Deck deck) {
+        HandFinder greedy = new HandFinder(deck, false);
+        int points = greedy.findHands();
+        int[] counts = deck.getCounts();
+        this.solver = ExactSolver.canSolve(counts) ? new ExactSolver(counts) : null;
+        this.best = new AnytimeResult(points, greedy.getHands(), ScoreBounds.upperBound(deck), false, 0);
+    }
+
+    /**
+     * Searches for a better split until the time runs out.
+     * @param timeout Time the search may take
+     * @param unit Unit of timeout
+     * @return Best split found so far
+     */
+    public AnytimeResult solve(long timeout, TimeUnit unit) {
+        return solve(timeout, unit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches for a better split until the time runs out or the search has made maxnodes calls, whichever is first.
+     * Returns straight away if improveInBackground is still running.
+     * @param timeout Time the search may take
+     * @param unit Unit of timeout
+     * @param maxnodes Calls to the exact search allowed, or Long.MAX_VALUE for no limit
+     * @return Best split found so far
+     */
+    public AnytimeResult solve(long timeout, TimeUnit unit, long maxnodes) {
+        synchronized(this) {
+            if(background != null && !background.isDone())
+                return best;
+        }
+        synchronized(searchlock) {
+            return step(unit.toNanos(timeout), maxnodes);
+        }
+    }
+
+    /**
+     * Keeps searching on another thread until the best split is proved, or the exact search gives up for good. The
+     * search runs in slices, and the result of each is published for getBest before the next one starts.
+     * @param executor Runs the search
+     * @return Completes with the final result; calling this again returns the same future
+     */
+    public synchronized CompletableFuture<AnytimeResult> improveInBackground(Executor executor) {
+        if(background == null) {
+            background = CompletableFuture.supplyAsync(() -> {
+                synchronized(searchlock) {
+                    long slice = FIRST_SLICE_NANOS;
+                    AnytimeResult result = step(slice, Long.MAX_VALUE);
+                    while(!isDone(result)) {
+                        slice = Math.min(slice * 2, LONGEST_SLICE_NANOS);
+                        result = step(slice, Long.MAX_VALUE);
+                    }
+                    return result;
+                }
+            }, executor);
+        }
+        return background;
+    }
+
+    /**
+     * Returns the best split found so far, which is safe to call from any thread at any time.
+     * @return Best split found so far
+     */
+    public AnytimeResult getBest() {
+        return best;
+    }
+
+    /**
+     * Checks whether searching any longer could change a result.
+     */
+    private boolean isDone(AnytimeResult result) {
+        return solver == null || result.isOptimal() || solver.isOutOfStates();
+    }
+
+    /**
+     * Runs one round of the exact search, starting from the best total known so far, and publishes its result.
+     */
+    private AnytimeResult step(long timeoutnanos, long maxnodes) {
+        AnytimeResult current = best;
+        if(isDone(current))
+            return current;
+
+        int found = solver.solve(current.getPoints(), timeoutnanos, maxnodes);
+        nodes += solver.getNodes();
+        AnytimeResult next;
+        if(solver.isFinished()) {
+            ArrayList<Hand> hands = found > current.getPoints() ? HandFinder.groupPairs(solver.buildHands(found)) : null;
+            next = new AnytimeResult(found, hands != null ? hands : current.getHands(), found, true, nodes);
+        } else {
+            int upperbound = Math.min(current.getUpperBound(), solver.getUpperBound());
+            if(solver.getBestFound() > current.getPoints()) {
+                ArrayList<Hand> hands = HandFinder.groupPairs(solver.buildBestFound());
+                next = new AnytimeResult(solver.getBestFound(), hands, upperbound, false, nodes);
+            } else {
+                next = new AnytimeResult(current.getPoints(), current.getHands(), upperbound, false, nodes);
+            }
+        }
+        best = next;
+        return next;
+    }
+}
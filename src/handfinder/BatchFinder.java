@@ -0,0 +1,350 @@
+package handfinder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scores a file of decks, one deck per line, on a pool of worker threads. Each deck gets its own HandFinder, and the
+ * total for each deck is written on its own line in the same order as the input. A deck holding a bad card is written
+ * as the negative error code from CardParser instead, and the rest of the batch carries on.
+ *
+ * Files are memory-mapped and cut into chunks that end on a line break. Each worker scores a whole chunk, reading the
+ * cards straight from the mapped bytes, so no String is made for any line or card. The worker also writes the chunk's
+ * results through a ResultWriter, so results can be written as text, JSON Lines or binary records instead.
+ */
+public class BatchFinder {
+    // How many decks each worker may have queued ahead of the writer, which keeps memory flat on large files
+    private static final int DECKS_PER_THREAD = 64;
+    // Size of each piece of a mapped file handed to a worker, and how many pieces each worker may have queued
+    private static final int CHUNK_BYTES = 1 << 22;
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Decks of a binary corpus handed to a worker at once
+    private static final int DECKS_PER_RANGE = 1 << 14;
+
+    private int threads;
+    private boolean useexactsolver;
+    // Format passed to ResultWriter.create
+    private String format;
+    // Shared by every worker, or null if each deck is always scored
+    private ResultCache cache;
+
+    /**
+     * Constructor that scores every deck, without a cache.
+     * @param threads Number of worker threads
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     */
+    public BatchFinder(int threads, boolean useexactsolver) {
+        this(threads, useexactsolver, 0);
+    }
+
+    /**
+     * Main constructor.
+     * @param threads Number of worker threads
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param cachesize Most decks to remember the totals of, so repeated decks are not scored again. Use 0 for none.
+     */
+    public BatchFinder(int threads, boolean useexactsolver, int cachesize) {
+        this(threads, useexactsolver, cachesize, "text");
+    }
+
+    /**
+     * Constructor that also picks how the results of a mapped file are written.
+     * @param threads Number of worker threads
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param cachesize Most decks to remember the totals of, so repeated decks are not scored again. Use 0 for none.
+     * @param format "text", "json" or "binary", as for ResultWriter.create. The cache only keeps totals, so it can
+     *               only be used with text.
+     */
+    public BatchFinder(int threads, boolean useexactsolver, int cachesize, String format) {
+        if(cachesize > 0 && !format.equals("text"))
+            throw new IllegalArgumentException("The cache only keeps totals, so it can only be used with text output.");
+        if(!ResultWriter.FORMATS.contains(format))
+            throw new IllegalArgumentException(format + " is not a valid output format.");
+        this.threads = Math.max(1, threads);
+        this.useexactsolver = useexactsolver;
+        this.format = format;
+        this.cache = cachesize > 0 ? new ResultCache(cachesize, useexactsolver) : null;
+    }
+
+    /**
+     * Returns the cache shared by the workers, to see how often it found a deck already scored.
+     * @return Cache, or null if each deck is always scored
+     */
+    public ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Scores every deck in a file and writes the results to System out.
+     * @param filename File holding one deck per line, with cards separated by spaces
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If interrupted while waiting on a worker
+     * @throws ExecutionException If a worker fails to score a deck
+     */
+    public void run(String filename) throws IOException, InterruptedException, ExecutionException {
+        run(filename, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Scores the decks in a file and writes the results to System out. A binary corpus written by DeckCorpusWriter
+     * is read through its index, so only the decks within the range are read; a text file is always read whole.
+     * @param filename Text file holding one deck per line, or a binary corpus
+     * @param first Number of the first deck of a corpus to score, from 0
+     * @param last Number just past the last deck of a corpus to score
+     * @throws IOException If the file cannot be read
+     * @throws InterruptedException If interrupted while waiting on a worker
+     * @throws ExecutionException If a worker fails to score a deck
+     */
+    public void run(String filename, long first, long last)
+            throws IOException, InterruptedException, ExecutionException {
+        System.out.flush();
+        // Write to the file descriptor directly, so results skip the encoding and locking of System.out
+        WritableByteChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+        Path path = Paths.get(filename);
+        if(DeckCorpus.isCorpus(path)) {
+            runCorpus(path, first, last, out);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            run(channel, out);
+        }
+    }
+
+    /**
+     * Scores a range of decks from a binary corpus, and writes the results in corpus order. Each worker reads its
+     * own share of decks through its own DeckCorpus.
+     * @param path Corpus written by DeckCorpusWriter
+     * @param first Number of the first deck to score, from 0
+     * @param last Number just past the last deck to score, which may be past the end of the corpus
+     * @param out Destination for the results, which is left open
+     * @throws IOException If reading or writing fails
+     * @throws InterruptedException If interrupted while waiting on a worker
+     * @throws ExecutionException If a worker fails to score a deck
+     */
+    public void runCorpus(Path path, long first, long last, WritableByteChannel out)
+            throws IOException, InterruptedException, ExecutionException {
+        long size;
+        try (DeckCorpus corpus = new DeckCorpus(path)) {
+            size = corpus.size();
+        }
+        last = Math.min(last, size);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<Future<ByteBuffer>>();
+        int window = threads * CHUNKS_PER_THREAD;
+        try {
+            for(long start = Math.max(0, first); start < last; start += DECKS_PER_RANGE) {
+                final long from = start;
+                final long to = Math.min(last, start + DECKS_PER_RANGE);
+                pending.add(pool.submit(() -> scoreRange(path, from, to)));
+
+                // Write out the oldest range once the window is full, so results stay in corpus order
+                if(pending.size() >= window)
+                    writeResults(pending.poll(), out);
+            }
+            while(!pending.isEmpty())
+                writeResults(pending.poll(), out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores every deck in a file by memory-mapping it, and writes the results in input order.
+     * @param channel Open channel to a file holding one deck per line
+     * @param out Destination for the results, which is left open
+     * @throws IOException If reading or writing fails, or a single line is too long to map
+     * @throws InterruptedException If interrupted while waiting on a worker
+     * @throws ExecutionException If a worker fails to score a deck
+     */
+    public void run(FileChannel channel, WritableByteChannel out)
+            throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<Future<ByteBuffer>>();
+        int window = threads * CHUNKS_PER_THREAD;
+        long size = channel.size();
+        long start = 0;
+        try {
+            while(start < size) {
+                long length = Math.min(CHUNK_BYTES, size - start);
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int end = start + length == size ? (int) length : lastLineEnd(chunk);
+                while(end < 0) {
+                    // A single line is longer than the chunk, so map a bigger one
+                    if(length >= Integer.MAX_VALUE)
+                        throw new IOException("Line starting at byte " + start + " is too long to map.");
+                    length = Math.min(Math.min(length * 2, Integer.MAX_VALUE), size - start);
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                    end = start + length == size ? (int) length : lastLineEnd(chunk);
+                }
+
+                final ByteBuffer decks = chunk;
+                final int decksend = end;
+                pending.add(pool.submit(() -> scoreChunk(decks, decksend)));
+                start += end;
+
+                // Write out the oldest chunk once the window is full, so results stay in input order
+                if(pending.size() >= window)
+                    writeResults(pending.poll(), out);
+            }
+            while(!pending.isEmpty())
+                writeResults(pending.poll(), out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores every deck from a reader and writes the totals in input order.
+     * @param reader Source of decks, one per line
+     * @param out Destination for the totals, one per line
+     * @throws IOException If reading or writing fails
+     * @throws InterruptedException If interrupted while waiting on a worker
+     * @throws ExecutionException If a worker fails to score a deck
+     */
+    public void run(BufferedReader reader, Writer out) throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Integer>> pending = new ArrayDeque<Future<Integer>>();
+        int window = threads * DECKS_PER_THREAD;
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                final String deckline = line;
+                pending.add(pool.submit(() -> score(deckline)));
+
+                // Write out the oldest deck once the window is full, so results stay in input order
+                if(pending.size() >= window)
+                    writeResult(pending.poll(), out);
+            }
+            while(!pending.isEmpty())
+                writeResult(pending.poll(), out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores one line of input.
+     * @param line Cards separated by spaces
+     * @return Total points for the deck, or the parser's negative error code if a card is bad
+     */
+    private int score(String line) {
+        if(cache == null)
+            return EvaluationContext.current(useexactsolver).evaluate(line);
+        Deck deck = new Deck();
+        int read = CardParser.parseDeck(line, deck);
+        if(read < 0)
+            return read;
+        return cache.findPoints(deck);
+    }
+
+    /**
+     * Scores every line within a chunk of a mapped file.
+     * @param chunk Mapped bytes, read without moving the buffer's position
+     * @param end Index just past the last line of the chunk
+     * @return Written results for every deck in the chunk, ready to copy out
+     * @throws IOException Never, as the results are written to memory
+     */
+    private ByteBuffer scoreChunk(ByteBuffer chunk, int end) throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream(end / 4);
+        ResultWriter writer = ResultWriter.create(format, Channels.newChannel(results));
+        Deck deck = new Deck();
+        // The same Deck is refilled for every line, so one HandFinder can score them all
+        HandFinder finder = new HandFinder(deck, useexactsolver);
+        int start = 0;
+        while(start < end) {
+            int lineend = start;
+            while(lineend < end && chunk.get(lineend) != '\n')
+                lineend++;
+
+            deck.clear();
+            writeResult(CardParser.parseDeck(chunk, start, lineend, deck), deck, finder, writer);
+            start = lineend + 1;
+        }
+        writer.flush();
+        return ByteBuffer.wrap(results.toByteArray());
+    }
+
+    /**
+     * Scores a range of decks from a corpus.
+     * @param path Corpus written by DeckCorpusWriter
+     * @param from Number of the first deck to score
+     * @param to Number just past the last deck to score
+     * @return Written results for every deck in the range, ready to copy out
+     * @throws IOException If the corpus cannot be read
+     */
+    private ByteBuffer scoreRange(Path path, long from, long to) throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream((int) (to - from) * 8);
+        ResultWriter writer = ResultWriter.create(format, Channels.newChannel(results));
+        Deck deck = new Deck();
+        HandFinder finder = new HandFinder(deck, useexactsolver);
+        try (DeckCorpus corpus = new DeckCorpus(path)) {
+            for(long n = from; n < to; n++) {
+                deck.clear();
+                writeResult(corpus.read(n, deck), deck, finder, writer);
+            }
+        }
+        writer.flush();
+        return ByteBuffer.wrap(results.toByteArray());
+    }
+
+    /**
+     * Scores one deck that has been read, through the cache if there is one, and writes its result.
+     * @param read Cards read, or a negative error code if the deck could not be read
+     * @param deck Cards to score
+     * @param finder HandFinder over the deck
+     * @param writer Destination for the result
+     * @throws IOException Never, as the results are written to memory
+     */
+    private void writeResult(int read, Deck deck, HandFinder finder, ResultWriter writer) throws IOException {
+        if(read < 0) {
+            writer.writeError(read);
+        } else if(cache != null) {
+            ((TextResultWriter) writer).writeTotal(cache.findPoints(deck));
+        } else {
+            finder.findPoints();
+            writer.write(finder);
+        }
+    }
+
+    /**
+     * Finds where the last complete line of a chunk ends.
+     * @param chunk Mapped bytes
+     * @return Index just past the last line break, or -1 if the chunk holds none
+     */
+    private static int lastLineEnd(ByteBuffer chunk) {
+        for(int i = chunk.limit() - 1; i >= 0; i--)
+            if(chunk.get(i) == '\n')
+                return i + 1;
+        return -1;
+    }
+
+    private static void writeResults(Future<ByteBuffer> results, WritableByteChannel out)
+            throws IOException, InterruptedException, ExecutionException {
+        ByteBuffer bytes = results.get();
+        while(bytes.hasRemaining())
+            out.write(bytes);
+    }
+
+    private static void writeResult(Future<Integer> result, Writer out)
+            throws IOException, InterruptedException, ExecutionException {
+        out.write(Integer.toString(result.get()));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,174 @@
+package handfinder;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Class that times each hand detector, card parsing, and the full search over generated decks, so that slowdowns can
+ * be caught and different ways of finding hands can be compared. This is a quick check that needs nothing but the JDK;
+ * HandFinderBenchmark times the same work under JMH, with forks and statistics, through "gradle jmh".
+ */
+public class BenchmarkDriver {
+    private static final int[] DECK_SIZES = {13, 52, 520, 10000};
+    // Decks generated for each size, cycled through while timing so no single deck gets all the attention
+    private static final int DECKS_PER_SIZE = 64;
+    private static final long SEED = 42;
+
+    // Results are added up here so the JIT cannot throw away the work being timed
+    private static long sink;
+
+    private long warmupmillis;
+    private long measuremillis;
+    private Deck[] decks;
+    private String[] lines;
+    private String[][] tokens;
+
+    /**
+     * Interface for one piece of work to time.
+     */
+    private interface Task {
+        /**
+         * Runs the work once on one of the generated decks.
+         * @param i Index of the deck to use
+         * @return Any value depending on the work, fed to the sink
+         */
+        long run(int i);
+    }
+
+    /**
+     * Main method.
+     * @param args Commandline arguments. Optionally pass the number of milliseconds to time each benchmark for.
+     */
+    public static void main(String[] args) {
+        long measuremillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        new BenchmarkDriver(measuremillis / 2, measuremillis).runAll();
+    }
+
+    /**
+     * Main constructor.
+     * @param warmupmillis How long to run each benchmark before timing it
+     * @param measuremillis How long to time each benchmark for
+     */
+    public BenchmarkDriver(long warmupmillis, long measuremillis) {
+        this.warmupmillis = warmupmillis;
+        this.measuremillis = measuremillis;
+    }
+
+    /**
+     * Runs every benchmark for every deck size, and prints a table of the results.
+     */
+    public void runAll() {
+        System.out.println(String.format("%-20s %8s %14s", "Benchmark", "Cards", "ns/op"));
+        ScoreBounds bounds = new ScoreBounds();
+        for(int size : DECK_SIZES) {
+            generateDecks(size);
+            measure("makeNewCard", size, i -> {
+                long total = 0;
+                for(String token : tokens[i])
+                    total += Card.makeNewCard(token).getIndex();
+                return total;
+            });
+            measure("parseDeck", size, i -> {
+                Deck deck = new Deck();
+                return CardParser.parseDeck(lines[i], deck);
+            });
+            measure("cloneDeck", size, i -> new Deck(decks[i]).size());
+            measure("checkEveryCardFlush", size, i -> runDetector(i, (finder, cards) -> finder.checkEveryCardFlush(cards)));
+            measure("checkRoyalFlush", size, i -> runDetector(i, (finder, cards) -> finder.checkRoyalFlush(cards)));
+            measure("checkStraightFlush", size, i -> runDetector(i, (finder, cards) -> finder.checkStraightFlush(cards)));
+            measure("checkFourOfAKind", size, i -> runDetector(i, (finder, cards) -> finder.checkFourOfAKind(cards)));
+            measure("checkFullHouse", size, i -> runDetector(i, (finder, cards) -> finder.checkFullHouse(cards)));
+            measure("checkFlush", size, i -> runDetector(i, (finder, cards) -> finder.checkFlush(cards)));
+            measure("checkStraight", size, i -> runDetector(i, (finder, cards) -> finder.checkStraight(cards)));
+            measure("checkThreeOfAKind", size, i -> runDetector(i, (finder, cards) -> finder.checkThreeOfAKind(cards)));
+            measure("checkPair", size, i -> runDetector(i, (finder, cards) -> finder.checkPair(cards)));
+            measure("checkTwoPair", size, i -> runDetector(i, (finder, cards) -> {
+                finder.checkPair(cards);
+                finder.checkTwoPair();
+            }));
+            measure("checkHighCard", size, i -> runDetector(i, (finder, cards) -> finder.checkHighCard(cards)));
+            measure("findHands", size, i -> new HandFinder(decks[i], false).findHands());
+            measure("findPoints", size, i -> new HandFinder(decks[i], false).findPoints());
+            measure("lowerBound", size, i -> bounds.lowerBound(decks[i]));
+            measure("upperBound", size, i -> ScoreBounds.upperBound(decks[i]));
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /**
+     * Interface for the work one detector does on a fresh copy of a deck.
+     */
+    private interface Workload {
+        void check(HandFinder finder, Deck cards);
+    }
+
+    /**
+     * Runs one detector on a copy of a generated deck. Detectors take cards out of the deck they are given, so each
+     * run needs its own copy; the cloneDeck benchmark shows how much of the time that copy takes.
+     * @param i Index of the deck to use
+     * @param workload Detector work to run
+     * @return Cards left after the detector ran
+     */
+    private long runDetector(int i, Workload workload) {
+        Deck cards = new Deck(decks[i]);
+        workload.check(new HandFinder(decks[i], false), cards);
+        return cards.size();
+    }
+
+    /**
+     * Warms up and then times one benchmark, and prints its average time per run.
+     * @param name Name to show on output
+     * @param size Number of cards in each deck
+     * @param task Work to time
+     */
+    private void measure(String name, int size, Task task) {
+        loop(task, warmupmillis);
+        long start = System.nanoTime();
+        long runs = loop(task, measuremillis);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-20s %8d %14.1f", name, size, (double) elapsed / runs));
+    }
+
+    /**
+     * Runs a task over the generated decks until the time is up.
+     * @param task Work to run
+     * @param millis How long to keep running
+     * @return Number of runs made
+     */
+    private long loop(Task task, long millis) {
+        long end = System.nanoTime() + millis * 1000000L;
+        long runs = 0;
+        long total = 0;
+        // Only check the clock between whole passes over the decks, so the check itself stays out of the timing
+        while(System.nanoTime() < end) {
+            for(int i = 0; i < decks.length; i++)
+                total += task.run(i);
+            runs += decks.length;
+        }
+        sink += total;
+        return runs;
+    }
+
+    /**
+     * Builds random decks of one size, along with their text form for the parsing benchmarks.
+     * @param size Number of cards in each deck
+     */
+    private void generateDecks(int size) {
+        Random random = new Random(SEED + size);
+        decks = new Deck[DECKS_PER_SIZE];
+        lines = new String[DECKS_PER_SIZE];
+        tokens = new String[DECKS_PER_SIZE][];
+        for(int d = 0; d < DECKS_PER_SIZE; d++) {
+            Deck deck = new Deck();
+            ArrayList<String> cards = new ArrayList<String>();
+            for(int k = 0; k < size; k++) {
+                Card c = Card.fromIndex(random.nextInt(Deck.CARDS));
+                deck.add(c);
+                cards.add(c.getFacevalue() + c.getSuit());
+            }
+            decks[d] = deck;
+            tokens[d] = cards.toArray(new String[0]);
+            lines[d] = String.join(" ", cards);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes each result as a fixed-width record of big-endian ints: the total points, then how many of each kind of
+ * hand were found, in HandType order. Every record is RECORD_BYTES long, so the result for deck n starts at byte
+ * n * RECORD_BYTES. A deck that could not be read has the negative error code in place of its total, and no hands.
+ */
+public class BinaryResultWriter extends ResultWriter {
+    public static final int RECORD_BYTES = Integer.BYTES * (1 + HandType.count());
+
+    /**
+     * Main constructor.
+     * @param channel Destination for the results
+     */
+    public BinaryResultWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(HandFinder finder) throws IOException {
+        reserve(RECORD_BYTES);
+        buffer.putInt(finder.getTotalPoints());
+        for(int kind = 0; kind < HandType.count(); kind++)
+            buffer.putInt(finder.getHandCount(HandType.fromOrdinal(kind)));
+    }
+
+    @Override
+    public void writeError(int code) throws IOException {
+        reserve(RECORD_BYTES);
+        buffer.putInt(code);
+        for(int kind = 0; kind < HandType.count(); kind++)
+            buffer.putInt(0);
+    }
+}
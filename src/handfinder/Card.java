@@ -2,13 +2,20 @@ package handfinder;
 
 public class Card implements Comparable<Card>{
     /*
+     * A Card is a view of one slot within a Deck, stored as its index rank * 4 + suit.
      * Number represents the "raw" value of the card, from 2 to 14 (aces high at 14).
      * Face value represents the shown value of the card. In this class, a face value of 'A' is a number 14.
      */
-    private int number;
-    private char suit;
-    private String facevalue;
-    private static final String AVAILABLESUITS = "CcDdHhSs";
+    private int index;
+    private static final String SUITS = "cdhs";
+    private static final String[] FACEVALUES = {"2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K", "A"};
+
+    // Every Card is immutable, so one shared instance per index is enough
+    private static final Card[] CARDS = new Card[Deck.CARDS];
+    static {
+        for(int i = 0; i < Deck.CARDS; i++)
+            CARDS[i] = new Card(i);
+    }
 
     public static final int ACE_VALUE = 14;
     public static final int KING_VALUE = 13;
@@ -19,9 +26,7 @@ public class Card implements Comparable<Card>{
      * Default constructor.
      */
     public Card() {
-        this.number = -1;
-        this.suit = 'x';
-        this.facevalue = "x";
+        this.index = -1;
     }
 
     /**
@@ -29,11 +34,14 @@ public class Card implements Comparable<Card>{
      * @param number Numeric value of Card's value. Here, Ace = 14, King = 13, Queen = 12, Jack = 11.
      * @param suit Suit for this Card.
      * @param facevalue Actual value of Card's value. Here, Ace = A, King = K, Queen = Q, Jack = J.
+     * @throws IllegalArgumentException If the number is not from 2 to 14, the suit is not one of c, d, h or s in
+     *         either case, or the face value does not match the number
      */
     public Card(int number, char suit, String facevalue) {
-        this.number = number;
-        this.suit = suit;
-        this.facevalue = facevalue;
+        int s = CardParser.suitOf(suit);
+        if(number < 2 || number > ACE_VALUE || s < 0 || !FACEVALUES[number - 2].equalsIgnoreCase(facevalue))
+            throw new IllegalArgumentException(facevalue + suit + " is not a valid card with number " + number + ".");
+        this.index = Deck.indexOf(number - 2, s);
     }
 
     /**
@@ -41,9 +49,24 @@ public class Card implements Comparable<Card>{
      * @param c Card to be copied.
      */
     public Card(Card c) {
-        this.number = c.number;
-        this.suit = c.suit;
-        this.facevalue = c.facevalue;
+        this.index = c.index;
+    }
+
+    /**
+     * Constructor for a Card at an index within a Deck.
+     * @param index rank * 4 + suit
+     */
+    private Card(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns the shared Card for an index within a Deck.
+     * @param index rank * 4 + suit
+     * @return Card at that index
+     */
+    public static Card fromIndex(int index) {
+        return CARDS[index];
     }
 
     /**
@@ -52,35 +75,12 @@ public class Card implements Comparable<Card>{
      * @return new Card object based on provided information
      */
     public static Card makeNewCard(String input) {
-        Card c = new Card();
-        if(input.length() == 3) {
-            // Card is a 10
-            String facevalue = input.substring(0,2);
-            if(!facevalue.equals("10")) {
-                System.err.println(input + " is not valid input for a card. Card is not a 10, but uses three characters.");
-                System.exit(-11);
-            }
-            char suit = input.charAt(2);
-            if(!AVAILABLESUITS.contains(suit + "")) {
-                System.err.println(input + " is not valid input for a card. Suit invalid.");
-                System.exit(-12);
-            }
-            int number = 10;
-            c = new Card(number, suit, facevalue + "");
-        } else if(input.length() == 2) {
-            char facevalue = input.charAt(0);
-            char suit = input.charAt(1);
-            if(!AVAILABLESUITS.contains(suit + "")) {
-                System.err.println(input + " is not valid input for a card. Suit invalid.");
-                System.exit(-12);
-            }
-            int number = Card.findNumber(facevalue);
-            c = new Card(number, suit, facevalue + "");
-        } else {
-            System.err.println(input + " is not valid input for a card. Card length invalid.");
-            System.exit(-10);
+        int index = CardParser.parseCard(input, 0, input.length());
+        if(index < 0) {
+            System.err.println(input + " is not valid input for a card. " + CardParser.describeError(index));
+            System.exit(index);
         }
-        return c;
+        return fromIndex(index);
     }
 
     /**
@@ -89,23 +89,12 @@ public class Card implements Comparable<Card>{
      * @return Numeric value of face value
      */
     public static int findNumber(char facevalue) {
-        int value = 0;
-        if(Character.isDigit(facevalue)) {
-            value = Integer.parseInt(facevalue + "");
-        } else if(facevalue == 'a' || facevalue == 'A') {
-            value = 14;
-        } else if(facevalue == 'k' || facevalue == 'K' ) {
-            value = 13;
-        } else if(facevalue == 'q' || facevalue == 'Q' ) {
-            value = 12;
-        } else if(facevalue == 'j' || facevalue == 'J' ) {
-            value = 11;
-        } else {
+        int rank = CardParser.rankOf(facevalue);
+        if(rank < 0) {
             System.err.println(facevalue + " is not valid input for a face value.");
-            System.exit(-22);
+            System.exit(rank);
         }
-
-        return value;
+        return rank + 2;
     }
 
     /**
@@ -115,7 +104,7 @@ public class Card implements Comparable<Card>{
      */
     @Override
     public int compareTo(Card other) {
-        return (other.number - this.number) * 1000 + (other.suit - this.suit);
+        return other.index - this.index;
     }
 
     /**
@@ -124,7 +113,15 @@ public class Card implements Comparable<Card>{
      * @return True if the cards match suit and face value, false otherwise.
      */
     public boolean equals(Card other) {
-        return this.number == other.number && this.suit == other.suit;
+        return this.index == other.index;
+    }
+
+    /**
+     * Returns the index of this Card within a Deck.
+     * @return rank * 4 + suit
+     */
+    public int getIndex() {
+        return this.index;
     }
 
     /**
@@ -132,7 +129,7 @@ public class Card implements Comparable<Card>{
      * @return Number for this Card's value
      */
     public int getNumber() {
-        return this.number;
+        return this.index < 0 ? -1 : Deck.rankOf(this.index) + 2;
     }
 
     /**
@@ -140,7 +137,7 @@ public class Card implements Comparable<Card>{
      * @return String representing this Card's value
      */
     public String getFacevalue() {
-        return this.facevalue;
+        return this.index < 0 ? "x" : FACEVALUES[Deck.rankOf(this.index)];
     }
 
     /**
@@ -148,7 +145,7 @@ public class Card implements Comparable<Card>{
      * @return String showing this Card's suit
      */
     public char getSuit() {
-        return this.suit;
+        return this.index < 0 ? 'x' : SUITS.charAt(Deck.suitOf(this.index));
     }
 
     /**
@@ -156,13 +153,13 @@ public class Card implements Comparable<Card>{
      * @return True if this card could be in a royal flush, false otherwise
      */
     public boolean isRoyal() {
-        return this.number > 9;
+        return this.getNumber() > 9;
     }
 
     /**
      * Outputs the card's information to System out.
      */
     public void print() {
-        System.out.println("  " + this.facevalue + this.suit);
+        System.out.println("  " + this.getFacevalue() + this.getSuit());
     }
 }
@@ -0,0 +1,221 @@
+package handfinder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads cards such as "QC" or "10s" straight into Deck indices. Text, byte arrays and ByteBuffers are all read by the
+ * same loop, through a small accessor for each kind of input; nothing else is made along the way, and once the JIT
+ * inlines the loop it usually does away with the accessor too. Bad input is reported through a negative error code rather than by ending the program, so one malformed deck does
+ * not stop a batch.
+ */
+public class CardParser {
+    // Error codes, matching the exit codes used by the interactive mode
+    public static final int ERROR_LENGTH = -10;
+    public static final int ERROR_TEN = -11;
+    public static final int ERROR_SUIT = -12;
+    public static final int ERROR_FACE_VALUE = -22;
+
+    /**
+     * Gives the character at each index of some text, so one loop can read cards from every kind of input.
+     */
+    private interface Text {
+        char charAt(int index);
+    }
+
+    /**
+     * Reads one card from part of a CharSequence.
+     * @param input Text holding the card
+     * @param start Index of the card's first character
+     * @param end Index just past the card's last character
+     * @return Index of the card within a Deck, or a negative error code
+     */
+    public static int parseCard(CharSequence input, int start, int end) {
+        return parseCard(input::charAt, start, end);
+    }
+
+    /**
+     * Reads one card from part of a byte array holding ASCII text.
+     * @param input Text holding the card
+     * @param start Index of the card's first byte
+     * @param end Index just past the card's last byte
+     * @return Index of the card within a Deck, or a negative error code
+     */
+    public static int parseCard(byte[] input, int start, int end) {
+        return parseCard(i -> (char) input[i], start, end);
+    }
+
+    /**
+     * Reads one card from part of a ByteBuffer holding ASCII text, such as a memory-mapped file. The buffer's
+     * position is left alone, so several threads may read one buffer at once.
+     * @param input Text holding the card
+     * @param start Index of the card's first byte
+     * @param end Index just past the card's last byte
+     * @return Index of the card within a Deck, or a negative error code
+     */
+    public static int parseCard(ByteBuffer input, int start, int end) {
+        return parseCard(i -> (char) input.get(i), start, end);
+    }
+
+    /**
+     * Reads a whole deck, with cards separated by spaces or tabs, and adds every card to a Deck.
+     * If a card is bad, the Deck is left holding only the cards read before it.
+     * @param input Text holding the deck
+     * @param deck Deck to add the cards to
+     * @return Number of cards read, or a negative error code
+     */
+    public static int parseDeck(CharSequence input, Deck deck) {
+        return parseDeck(input::charAt, 0, input.length(), deck);
+    }
+
+    /**
+     * Reads a whole deck from part of a byte array holding ASCII text, and adds every card to a Deck.
+     * If a card is bad, the Deck is left holding only the cards read before it.
+     * @param input Text holding the deck
+     * @param start Index of the first byte of the deck
+     * @param end Index just past the last byte of the deck
+     * @param deck Deck to add the cards to
+     * @return Number of cards read, or a negative error code
+     */
+    public static int parseDeck(byte[] input, int start, int end, Deck deck) {
+        return parseDeck(i -> (char) input[i], start, end, deck);
+    }
+
+    /**
+     * Reads a whole deck from part of a ByteBuffer holding ASCII text, and adds every card to a Deck. The buffer's
+     * position is left alone, so several threads may read one buffer at once.
+     * If a card is bad, the Deck is left holding only the cards read before it.
+     * @param input Text holding the deck
+     * @param start Index of the first byte of the deck
+     * @param end Index just past the last byte of the deck
+     * @param deck Deck to add the cards to
+     * @return Number of cards read, or a negative error code
+     */
+    public static int parseDeck(ByteBuffer input, int start, int end, Deck deck) {
+        return parseDeck(i -> (char) input.get(i), start, end, deck);
+    }
+
+    /**
+     * Reads one card from part of any text.
+     * @param input Text holding the card
+     * @param start Index of the card's first character
+     * @param end Index just past the card's last character
+     * @return Index of the card within a Deck, or a negative error code
+     */
+    private static int parseCard(Text input, int start, int end) {
+        int length = end - start;
+        if(length == 3) {
+            // Card is a 10
+            if(input.charAt(start) != '1' || input.charAt(start + 1) != '0')
+                return ERROR_TEN;
+            return makeIndex(Deck.TEN, input.charAt(start + 2));
+        } else if(length == 2) {
+            int rank = rankOf(input.charAt(start));
+            if(rank < 0)
+                return rank;
+            return makeIndex(rank, input.charAt(start + 1));
+        }
+        return ERROR_LENGTH;
+    }
+
+    /**
+     * Reads a whole deck from part of any text, and adds every card to a Deck.
+     * @param input Text holding the deck
+     * @param start Index of the first character of the deck
+     * @param end Index just past the last character of the deck
+     * @param deck Deck to add the cards to
+     * @return Number of cards read, or a negative error code
+     */
+    private static int parseDeck(Text input, int start, int end, Deck deck) {
+        int cards = 0;
+        int i = start;
+        while(i < end) {
+            while(i < end && isSpace(input.charAt(i)))
+                i++;
+            int first = i;
+            while(i < end && !isSpace(input.charAt(i)))
+                i++;
+            if(i > first) {
+                int index = parseCard(input, first, i);
+                if(index < 0)
+                    return index;
+                deck.add(index);
+                cards++;
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Finds the rank of a face value. A = 12, K = 11, Q = 10, J = 9, down to 2 = 0. Like suits, the letters are read in
+     * either case, so "qs" is the Queen of spades just as "QS" is.
+     * @param facevalue Character representing face value of card
+     * @return Rank of the face value, or ERROR_FACE_VALUE
+     */
+    public static int rankOf(char facevalue) {
+        if(facevalue >= '2' && facevalue <= '9')
+            return facevalue - '2';
+        switch(facevalue) {
+            case 'a': case 'A':
+                return Deck.ACE;
+            case 'k': case 'K':
+                return Deck.ACE - 1;
+            case 'q': case 'Q':
+                return Deck.ACE - 2;
+            case 'j': case 'J':
+                return Deck.ACE - 3;
+            default:
+                return ERROR_FACE_VALUE;
+        }
+    }
+
+    /**
+     * Finds the suit of a suit character, in either case.
+     * @param suit Character representing the suit
+     * @return Suit, 0 to 3 for clubs, diamonds, hearts, spades, or ERROR_SUIT
+     */
+    public static int suitOf(char suit) {
+        switch(suit) {
+            case 'c': case 'C':
+                return Deck.CLUBS;
+            case 'd': case 'D':
+                return Deck.DIAMONDS;
+            case 'h': case 'H':
+                return Deck.HEARTS;
+            case 's': case 'S':
+                return Deck.SPADES;
+            default:
+                return ERROR_SUIT;
+        }
+    }
+
+    /**
+     * Describes an error code for output.
+     * @param error Negative error code returned by the parser
+     * @return Message explaining the error
+     */
+    public static String describeError(int error) {
+        switch(error) {
+            case ERROR_LENGTH:
+                return "Card length invalid.";
+            case ERROR_TEN:
+                return "Card is not a 10, but uses three characters.";
+            case ERROR_SUIT:
+                return "Suit invalid.";
+            case ERROR_FACE_VALUE:
+                return "Face value invalid.";
+            default:
+                return "Unknown error.";
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static int makeIndex(int rank, char suitchar) {
+        int suit = suitOf(suitchar);
+        if(suit < 0)
+            return suit;
+        return Deck.indexOf(rank, suit);
+    }
+}
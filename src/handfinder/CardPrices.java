@@ -0,0 +1,411 @@
+package handfinder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Puts a price on each card of a deck so that no hand the deck can make is worth more points than the prices of its
+ * cards add up to. Since every split of the deck sells each card once, the total price of the deck is then an upper
+ * bound on its best split.
+ *
+ * The prices are the dual of the linear relaxation of the split, where a deck may be split into fractions of hands.
+ * That is solved with the revised simplex method, pricing each kind of hand by its cheapest cards instead of listing
+ * every hand. The prices are then rounded up to whole thousandths of a point, and raised wherever rounding, or a
+ * search cut short, leaves some hand worth more than its cards cost. Raising a price never lets another hand get
+ * cheaper, so each kind of hand only needs checking once.
+ *
+ * Solving the relaxation can be stopped partway and carried on later, so the time it takes can be charged to the
+ * budget of the search that needs the prices.
+ */
+final class CardPrices {
+    // Prices are counted in thousandths of a point
+    static final int SCALE = 1000;
+
+    private static final int RANKS = Deck.RANKS;
+    private static final int SUITS = Deck.SUITS;
+    private static final int CARDS = Deck.CARDS;
+    private static final double EPSILON = 1e-9;
+    // The limits of the copies held are nudged by up to this much, so that the simplex method cannot cycle
+    private static final double PERTURBATION = 1e-7;
+    private static final int MAX_PIVOTS = 20000;
+
+    private final int[] counts;
+    // Row of the relaxation for each card, or -1 if the deck does not hold it
+    private final int[] rowof = new int[CARDS];
+    private final double[] duals = new double[CARDS];
+
+    // The basis of the relaxation so far: its inverse, the amount of each hand in it, and their points
+    private final int rows;
+    private final double[][] inverse;
+    private final double[] amounts;
+    private final int[] basispoints;
+    private final double[] column;
+    private int pivots;
+    private boolean issolved;
+
+    // Best hand to bring into the basis, as found by price()
+    private final int[] entering = new int[RANKS];
+    private int enteringsize;
+    private int enteringpoints;
+    private double enteringgain;
+
+    /**
+     * Main constructor, which starts from the basis where every card is left unused.
+     * @param counts Number of copies of each card, indexed by rank * 4 + suit, which is not copied
+     */
+    CardPrices(int[] counts) {
+        this.counts = counts;
+        int held = 0;
+        for(int c = 0; c < CARDS; c++)
+            rowof[c] = counts[c] > 0 ? held++ : -1;
+        this.rows = held;
+        this.inverse = new double[rows][rows];
+        this.amounts = new double[rows];
+        this.basispoints = new int[rows];
+        this.column = new double[rows];
+        Random nudge = new Random(1);
+        for(int c = 0; c < CARDS; c++) {
+            if(rowof[c] < 0)
+                continue;
+            inverse[rowof[c]][rowof[c]] = 1;
+            amounts[rowof[c]] = counts[c] * (1 + PERTURBATION * nudge.nextDouble());
+        }
+    }
+
+    /**
+     * Carries on solving the linear relaxation, leaving its dual in duals, until it is solved or time runs out.
+     * @param isoutoftime Checked before every pivot; once it returns true, the relaxation stops where it is
+     * @return True once the relaxation is solved, false if it stopped early and can be carried on by calling this again
+     */
+    boolean solveRelaxation(BooleanSupplier isoutoftime) {
+        for(; !issolved && pivots < MAX_PIVOTS; pivots++) {
+            if(isoutoftime.getAsBoolean())
+                return false;
+            for(int c = 0; c < CARDS; c++) {
+                if(rowof[c] < 0)
+                    continue;
+                double dual = 0;
+                for(int i = 0; i < rows; i++)
+                    if(basispoints[i] != 0)
+                        dual += basispoints[i] * inverse[i][rowof[c]];
+                duals[c] = dual;
+            }
+            if(!price()) {
+                issolved = true;
+                break;
+            }
+
+            Arrays.fill(column, 0);
+            for(int k = 0; k < enteringsize; k++) {
+                int j = rowof[entering[k]];
+                for(int i = 0; i < rows; i++)
+                    column[i] += inverse[i][j];
+            }
+            int leaving = -1;
+            double ratio = Double.MAX_VALUE;
+            for(int i = 0; i < rows; i++) {
+                if(column[i] > EPSILON && amounts[i] / column[i] < ratio) {
+                    ratio = amounts[i] / column[i];
+                    leaving = i;
+                }
+            }
+            // Every hand uses up some card, so the relaxation is always bounded
+            if(leaving < 0) {
+                issolved = true;
+                break;
+            }
+
+            double pivot = column[leaving];
+            double[] pivotrow = inverse[leaving];
+            for(int j = 0; j < rows; j++)
+                pivotrow[j] /= pivot;
+            amounts[leaving] /= pivot;
+            for(int i = 0; i < rows; i++) {
+                double factor = column[i];
+                if(i == leaving || factor == 0)
+                    continue;
+                double[] row = inverse[i];
+                for(int j = 0; j < rows; j++)
+                    row[j] -= factor * pivotrow[j];
+                amounts[i] -= factor * amounts[leaving];
+            }
+            basispoints[leaving] = enteringpoints;
+        }
+        // Past MAX_PIVOTS the duals are used as they are, and roundUp makes them safe
+        issolved = true;
+        return true;
+    }
+
+    /**
+     * Finds the hand worth the most points over the dual prices of its cards. For each kind of hand only the cheapest
+     * cards that could make it need looking at.
+     * @return True if some hand is worth more than its cards cost, false if the dual is feasible
+     */
+    private boolean price() {
+        enteringgain = EPSILON;
+        enteringsize = 0;
+        int[] byprice = new int[SUITS];
+        int[] pairs = new int[RANKS * 2];
+        int[] threes = new int[RANKS * 3];
+        double[] paircost = new double[RANKS];
+        double[] threecost = new double[RANKS];
+
+        for(int r = 0; r < RANKS; r++) {
+            int held = cheapestFirst(r, byprice);
+            paircost[r] = Double.NaN;
+            threecost[r] = Double.NaN;
+            if(held >= 2) {
+                paircost[r] = duals[byprice[0]] + duals[byprice[1]];
+                System.arraycopy(byprice, 0, pairs, r * 2, 2);
+                consider(HandType.PAIR, byprice, 2);
+            }
+            if(held >= 3) {
+                threecost[r] = paircost[r] + duals[byprice[2]];
+                System.arraycopy(byprice, 0, threes, r * 3, 3);
+                consider(HandType.THREE_OF_A_KIND, byprice, 3);
+            }
+            if(held == SUITS)
+                consider(HandType.FOUR_OF_A_KIND, byprice, 4);
+        }
+        int[] single = new int[1];
+        for(int c = 0; c < CARDS; c++) {
+            if(rowof[c] >= 0) {
+                single[0] = c;
+                consider(HandType.HIGH_CARD, single, 1);
+            }
+        }
+
+        int[] fullhouse = new int[5];
+        for(int r = 0; r < RANKS; r++) {
+            if(Double.isNaN(threecost[r]))
+                continue;
+            for(int q = 0; q < RANKS; q++) {
+                if(q == r || Double.isNaN(paircost[q]))
+                    continue;
+                System.arraycopy(threes, r * 3, fullhouse, 0, 3);
+                System.arraycopy(pairs, q * 2, fullhouse, 3, 2);
+                consider(HandType.FULL_HOUSE.getPoints(), threecost[r] + paircost[q], fullhouse, 5);
+            }
+        }
+
+        // Straights, from the cheapest card of each rank. A run of one suit is really a Straight Flush, but pricing
+        // it as a Straight still finds a hand worth more than its cards whenever there is one.
+        int[] run = new int[5];
+        for(int low = Deck.TWO; low <= Deck.TEN; low++) {
+            double cost = 0;
+            boolean isheld = true;
+            for(int k = 0; k < 5 && isheld; k++) {
+                isheld = cheapestFirst(low + k, byprice) > 0;
+                if(isheld) {
+                    run[k] = byprice[0];
+                    cost += duals[byprice[0]];
+                }
+            }
+            if(isheld)
+                consider(HandType.STRAIGHT.getPoints(), cost, run, 5);
+        }
+
+        int[] suit = new int[RANKS];
+        for(int s = 0; s < SUITS; s++) {
+            int held = 0;
+            for(int r = 0; r < RANKS; r++)
+                if(rowof[Deck.indexOf(r, s)] >= 0)
+                    suit[held++] = Deck.indexOf(r, s);
+            if(held == RANKS)
+                consider(HandType.EVERY_CARD_FLUSH.getPoints(), sum(suit, RANKS), suit, RANKS);
+            for(int low = Deck.TWO; low <= Deck.TEN; low++) {
+                boolean isheld = true;
+                for(int k = 0; k < 5 && isheld; k++) {
+                    run[k] = Deck.indexOf(low + k, s);
+                    isheld = rowof[run[k]] >= 0;
+                }
+                if(isheld)
+                    consider(runType(low, s).getPoints(), sum(run, 5), run, 5);
+            }
+            if(held >= 5) {
+                sortByPrice(suit, held);
+                consider(HandType.FLUSH.getPoints(), sum(suit, 5), suit, 5);
+            }
+        }
+        return enteringsize > 0;
+    }
+
+    private void consider(HandType type, int[] cards, int size) {
+        consider(type.getPoints(), sum(cards, size), cards, size);
+    }
+
+    private void consider(int points, double cost, int[] cards, int size) {
+        if(points - cost <= enteringgain)
+            return;
+        enteringgain = points - cost;
+        enteringpoints = points;
+        enteringsize = size;
+        System.arraycopy(cards, 0, entering, 0, size);
+    }
+
+    private double sum(int[] cards, int size) {
+        double total = 0;
+        for(int k = 0; k < size; k++)
+            total += duals[cards[k]];
+        return total;
+    }
+
+    /**
+     * Lists the cards the deck holds of one rank, cheapest first by dual price.
+     * @return Number of cards listed
+     */
+    private int cheapestFirst(int rank, int[] cards) {
+        int held = 0;
+        for(int s = 0; s < SUITS; s++)
+            if(rowof[Deck.indexOf(rank, s)] >= 0)
+                cards[held++] = Deck.indexOf(rank, s);
+        sortByPrice(cards, held);
+        return held;
+    }
+
+    private void sortByPrice(int[] cards, int size) {
+        for(int i = 1; i < size; i++) {
+            int card = cards[i];
+            int j = i;
+            for(; j > 0 && duals[cards[j - 1]] > duals[card]; j--)
+                cards[j] = cards[j - 1];
+            cards[j] = card;
+        }
+    }
+
+    /**
+     * Rounds the dual prices up to whole units, then raises them until every hand the deck can make costs at least
+     * its points. Meant for once solveRelaxation has returned true, though the prices are safe to use either way.
+     * @return Price of each card in thousandths of a point, or 0 for cards the deck does not hold
+     */
+    long[] roundUp() {
+        long[] prices = new long[CARDS];
+        for(int c = 0; c < CARDS; c++)
+            if(rowof[c] >= 0)
+                prices[c] = Math.max(points(HandType.HIGH_CARD), (long) Math.ceil(duals[c] * SCALE - 1e-6));
+
+        int[] cards = new int[RANKS];
+        long[] paircost = new long[RANKS];
+        for(int r = 0; r < RANKS; r++) {
+            int held = heldOf(prices, r, cards);
+            // Raise all but the cheapest card, so that each of them makes a Pair with it, then all but the two
+            // cheapest so they make a Three of a Kind with those, then the dearest for the Four of a Kind
+            if(held >= 2)
+                raiseTo(prices, cards, 1, held, points(HandType.PAIR) - prices[cards[0]]);
+            if(held >= 3)
+                raiseTo(prices, cards, 2, held, points(HandType.THREE_OF_A_KIND) - prices[cards[0]] - prices[cards[1]]);
+            if(held == SUITS)
+                raiseTo(prices, cards, 3, held, points(HandType.FOUR_OF_A_KIND) - prices[cards[0]] - prices[cards[1]]
+                        - prices[cards[2]]);
+            paircost[r] = held >= 2 ? prices[cards[0]] + prices[cards[1]] : Long.MAX_VALUE;
+        }
+        // A Full House needs its Three of a Kind to cover what the cheapest Pair of another rank leaves over
+        for(int r = 0; r < RANKS; r++) {
+            int held = heldOf(prices, r, cards);
+            if(held < 3)
+                continue;
+            long cheapestpair = Long.MAX_VALUE;
+            for(int q = 0; q < RANKS; q++)
+                if(q != r)
+                    cheapestpair = Math.min(cheapestpair, paircost[q]);
+            if(cheapestpair != Long.MAX_VALUE)
+                raiseTo(prices, cards, 2, held, points(HandType.FULL_HOUSE) - cheapestpair - prices[cards[0]]
+                        - prices[cards[1]]);
+        }
+        // A Straight takes the cheapest card of each rank, so raise the top rank of a run that falls short
+        for(int low = Deck.TWO; low <= Deck.TEN; low++) {
+            long cost = 0;
+            boolean isheld = true;
+            for(int k = 0; k < 5 && isheld; k++) {
+                isheld = heldOf(prices, low + k, cards) > 0;
+                if(isheld)
+                    cost += prices[cards[0]];
+            }
+            if(isheld && cost < points(HandType.STRAIGHT)) {
+                int held = heldOf(prices, low + 4, cards);
+                raiseTo(prices, cards, 0, held, prices[cards[0]] + points(HandType.STRAIGHT) - cost);
+            }
+        }
+        for(int s = 0; s < SUITS; s++) {
+            int held = 0;
+            for(int r = 0; r < RANKS; r++)
+                if(rowof[Deck.indexOf(r, s)] >= 0)
+                    cards[held++] = Deck.indexOf(r, s);
+            if(held == RANKS) {
+                long cost = 0;
+                for(int k = 0; k < RANKS; k++)
+                    cost += prices[cards[k]];
+                if(cost < points(HandType.EVERY_CARD_FLUSH))
+                    prices[cards[RANKS - 1]] += points(HandType.EVERY_CARD_FLUSH) - cost;
+            }
+            if(held >= 5) {
+                sortByPrice(prices, cards, held);
+                long cost = 0;
+                for(int k = 0; k < 4; k++)
+                    cost += prices[cards[k]];
+                raiseTo(prices, cards, 4, held, points(HandType.FLUSH) - cost);
+            }
+            for(int low = Deck.TWO; low <= Deck.TEN; low++) {
+                long cost = 0;
+                boolean isheld = true;
+                for(int k = 0; k < 5 && isheld; k++) {
+                    int c = Deck.indexOf(low + k, s);
+                    isheld = rowof[c] >= 0;
+                    cost += prices[c];
+                }
+                long worth = points(runType(low, s));
+                if(isheld && cost < worth)
+                    prices[Deck.indexOf(low + 4, s)] += worth - cost;
+            }
+        }
+        return prices;
+    }
+
+    private static long points(HandType type) {
+        return (long) type.getPoints() * SCALE;
+    }
+
+    /**
+     * Raises the price of cards[from] up to cards[to - 1] to at least floor.
+     */
+    private static void raiseTo(long[] prices, int[] cards, int from, int to, long floor) {
+        for(int k = from; k < to; k++)
+            prices[cards[k]] = Math.max(prices[cards[k]], floor);
+    }
+
+    /**
+     * Lists the cards the deck holds of one rank, cheapest first.
+     * @return Number of cards listed
+     */
+    private int heldOf(long[] prices, int rank, int[] cards) {
+        int held = 0;
+        for(int s = 0; s < SUITS; s++)
+            if(rowof[Deck.indexOf(rank, s)] >= 0)
+                cards[held++] = Deck.indexOf(rank, s);
+        sortByPrice(prices, cards, held);
+        return held;
+    }
+
+    private static void sortByPrice(long[] prices, int[] cards, int size) {
+        for(int i = 1; i < size; i++) {
+            int card = cards[i];
+            int j = i;
+            for(; j > 0 && prices[cards[j - 1]] > prices[card]; j--)
+                cards[j] = cards[j - 1];
+            cards[j] = card;
+        }
+    }
+
+    /**
+     * Finds the kind of hand made by five cards of one suit in a row.
+     * @param low Rank of the lowest card
+     * @param suit Suit of the cards
+     * @return Straight Flush, Royal Flush or Royal Flush in Spades
+     */
+    static HandType runType(int low, int suit) {
+        if(low != Deck.TEN)
+            return HandType.STRAIGHT_FLUSH;
+        return suit == Deck.SPADES ? HandType.ROYAL_FLUSH_IN_SPADES : HandType.ROYAL_FLUSH;
+    }
+}
@@ -0,0 +1,135 @@
+package handfinder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out how much adding or removing each of the 52 distinct cards would change a deck's total score, to point
+ * out the card worth adding next.
+ *
+ * The 52 what-if scores are split across a ForkJoinPool. Every one of them starts from the same base deck and its
+ * score, which are worked out once; each only needs its own copy of the 52 counts with one card changed.
+ */
+public class CardRecommender {
+    // Gain given for removing a card the deck does not hold
+    public static final int NOT_HELD = Integer.MIN_VALUE;
+
+    // Cards scored by each task before it stops splitting the work further
+    private static final int CARDS_PER_TASK = 4;
+
+    private ForkJoinPool pool;
+    private boolean useexactsolver;
+
+    /**
+     * Constructor that uses the common ForkJoinPool and the greedy pass.
+     */
+    public CardRecommender() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Main constructor.
+     * @param pool Pool to score the what-if decks on
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     */
+    public CardRecommender(ForkJoinPool pool, boolean useexactsolver) {
+        this.pool = pool;
+        this.useexactsolver = useexactsolver;
+    }
+
+    /**
+     * Finds how much the total score would change by adding one copy of each card.
+     * @param deck Base deck, which is not changed
+     * @return Change in total points for each card, indexed by rank * 4 + suit
+     */
+    public int[] findAddGains(Deck deck) {
+        return findGains(deck, true);
+    }
+
+    /**
+     * Finds how much the total score would change by removing one copy of each card.
+     * @param deck Base deck, which is not changed
+     * @return Change in total points for each card, indexed by rank * 4 + suit, or NOT_HELD for cards the deck does
+     *         not hold
+     */
+    public int[] findRemoveGains(Deck deck) {
+        return findGains(deck, false);
+    }
+
+    /**
+     * Finds the card that would raise the total score the most if added. Ties go to the higher card.
+     * @param deck Base deck, which is not changed
+     * @return The best Card to add
+     */
+    public Card findBestCard(Deck deck) {
+        int[] gains = findAddGains(deck);
+        int best = Deck.CARDS - 1;
+        for(int i = Deck.CARDS - 2; i >= 0; i--)
+            if(gains[i] > gains[best])
+                best = i;
+        return Card.fromIndex(best);
+    }
+
+    /**
+     * Scores the base deck once, then every what-if deck in parallel.
+     * @param deck Base deck, which is not changed
+     * @param isadding True to add a copy of each card, false to remove one
+     * @return Change in total points for each card
+     */
+    private int[] findGains(Deck deck, boolean isadding) {
+        Deck base = new Deck(deck);
+        int basepoints = new HandFinder(base, useexactsolver).findPoints();
+        int[] gains = new int[Deck.CARDS];
+        pool.invoke(new GainTask(base, basepoints, isadding, gains, 0, Deck.CARDS));
+        return gains;
+    }
+
+    /**
+     * Scores the what-if decks for a range of cards, splitting the range in half until it is small.
+     */
+    private class GainTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Deck base;
+        private final int basepoints;
+        private final boolean isadding;
+        private final int[] gains;
+        private final int from;
+        private final int to;
+
+        GainTask(Deck base, int basepoints, boolean isadding, int[] gains, int from, int to) {
+            this.base = base;
+            this.basepoints = basepoints;
+            this.isadding = isadding;
+            this.gains = gains;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > CARDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GainTask(base, basepoints, isadding, gains, from, middle),
+                        new GainTask(base, basepoints, isadding, gains, middle, to));
+                return;
+            }
+
+            // Each what-if deck is built in the worker thread's own context, so none are allocated
+            EvaluationContext context = EvaluationContext.current(useexactsolver);
+            for(int i = from; i < to; i++) {
+                if(!isadding && base.count(i) == 0) {
+                    gains[i] = NOT_HELD;
+                    continue;
+                }
+                Deck whatif = context.reset();
+                whatif.copyFrom(base);
+                if(isadding)
+                    whatif.add(i);
+                else
+                    whatif.remove(i);
+                gains[i] = context.evaluate() - basepoints;
+            }
+        }
+    }
+}
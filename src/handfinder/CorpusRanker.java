@@ -0,0 +1,109 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scores every deck of a corpus written by DeckCorpusWriter and keeps only the best ones, so corpora far too large to
+ * hold the results of can still be ranked.
+ *
+ * The corpus is split into one range of decks for each thread. Every thread opens the corpus itself and keeps its own
+ * Deck, HandFinder and Leaderboard, which are merged once every thread is done. Once a thread's leaderboard is full,
+ * a deck whose ScoreBounds upper bound cannot beat the weakest deck kept is passed over without being scored. That
+ * check is left out when the decks with the most of each kind of hand are kept too, as those need every deck scored.
+ */
+public class CorpusRanker {
+    private int threads;
+    private boolean useexactsolver;
+    private int size;
+    private boolean isbytype;
+
+    /**
+     * Main constructor.
+     * @param threads Number of decks to score at once
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param size Number of decks to keep on each list
+     * @param isbytype True to also keep the decks with the most of each kind of hand
+     */
+    public CorpusRanker(int threads, boolean useexactsolver, int size, boolean isbytype) {
+        if(size < 1)
+            throw new IllegalArgumentException("A leaderboard needs room for at least one deck.");
+        this.threads = Math.max(1, threads);
+        this.useexactsolver = useexactsolver;
+        this.size = size;
+        this.isbytype = isbytype;
+    }
+
+    /**
+     * Scores every deck of a corpus.
+     * @param corpus Corpus to rank
+     * @return Best decks found
+     * @throws Exception If the corpus cannot be read, or a thread fails or is interrupted
+     */
+    public Leaderboard run(Path corpus) throws Exception {
+        long count;
+        try (DeckCorpus reader = new DeckCorpus(corpus)) {
+            count = reader.size();
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<Leaderboard>> results = new ArrayList<>();
+        try {
+            long first = 0;
+            for(int t = 0; t < threads; t++) {
+                long share = count / threads + (t < count % threads ? 1 : 0);
+                results.add(workers.submit(new Worker(corpus, first, first + share)));
+                first += share;
+            }
+
+            Leaderboard board = new Leaderboard(size, isbytype);
+            for(Future<Leaderboard> result : results)
+                board.merge(result.get());
+            return board;
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Scores one thread's range of decks, keeping its own leaderboard.
+     */
+    private class Worker implements Callable<Leaderboard> {
+        private final Path corpus;
+        private final long first;
+        private final long last;
+        private final Deck deck = new Deck();
+        private final HandFinder finder = new HandFinder(deck, useexactsolver);
+        private final Leaderboard board = new Leaderboard(size, isbytype);
+
+        Worker(Path corpus, long first, long last) {
+            this.corpus = corpus;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public Leaderboard call() throws IOException {
+            try (DeckCorpus reader = new DeckCorpus(corpus)) {
+                // Decks are read in order, which Leaderboard.canSkip relies on
+                for(long n = first; n < last; n++) {
+                    deck.clear();
+                    if(reader.read(n, deck) < 0) {
+                        board.error();
+                    } else if(board.canSkip(ScoreBounds.upperBound(deck))) {
+                        board.skip();
+                    } else {
+                        board.add(n, finder.findPoints(), finder);
+                    }
+                }
+            }
+            return board;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package handfinder;
+
+import java.util.Arrays;
+
+/**
+ * A deck held as the number of copies of each of the 52 distinct cards, rather than as a list of Card objects.
+ * Cards are indexed by rank * 4 + suit, where rank 0 is a Two and rank 12 is an Ace, and suits are ordered clubs,
+ * diamonds, hearts, spades.
+ */
+public class Deck {
+    public static final int RANKS = 13;
+    public static final int SUITS = 4;
+    public static final int CARDS = RANKS * SUITS;
+
+    public static final int CLUBS = 0;
+    public static final int DIAMONDS = 1;
+    public static final int HEARTS = 2;
+    public static final int SPADES = 3;
+
+    // Ranks of a few cards that the detectors look for by name
+    public static final int TWO = 0;
+    public static final int TEN = 8;
+    public static final int ACE = RANKS - 1;
+
+    // Bits of a rank mask that cover five numbers in a row, starting from a Two
+    public static final int RUN_MASK = 0x1F;
+    public static final int ROYAL_MASK = RUN_MASK << TEN;
+    public static final int ALL_RANKS_MASK = (1 << RANKS) - 1;
+
+    // Lowest rank of the highest five numbers in a row within each rank mask, or -1 if there are none
+    private static final byte[] HIGHESTRUN = new byte[1 << RANKS];
+    static {
+        for(int mask = 0; mask <= ALL_RANKS_MASK; mask++) {
+            HIGHESTRUN[mask] = -1;
+            for(int low = TEN; low >= TWO && HIGHESTRUN[mask] < 0; low--)
+                if((mask & (RUN_MASK << low)) == RUN_MASK << low)
+                    HIGHESTRUN[mask] = (byte) low;
+        }
+    }
+
+    private int[] counts;
+    private int size;
+    // For each suit, bit r is set while at least one card of rank r is left
+    private int[] suitmasks;
+
+    /**
+     * Generic constructor, creating an empty deck.
+     */
+    public Deck() {
+        this.counts = new int[CARDS];
+        this.size = 0;
+        this.suitmasks = new int[SUITS];
+    }
+
+    /**
+     * Copy constructor.
+     * @param other Deck to be copied
+     */
+    public Deck(Deck other) {
+        this.counts = other.counts.clone();
+        this.size = other.size;
+        this.suitmasks = other.suitmasks.clone();
+    }
+
+    /**
+     * Makes this Deck hold the same cards as another, reusing its own arrays.
+     * @param other Deck to be copied
+     */
+    public void copyFrom(Deck other) {
+        System.arraycopy(other.counts, 0, counts, 0, CARDS);
+        System.arraycopy(other.suitmasks, 0, suitmasks, 0, SUITS);
+        size = other.size;
+    }
+
+    /**
+     * Removes every card, so the Deck can be filled again.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(suitmasks, 0);
+        size = 0;
+    }
+
+    /**
+     * Builds the index of a card from its rank and suit.
+     * @param rank Rank of the card, 0 for a Two up to 12 for an Ace
+     * @param suit Suit of the card, 0 to 3 for clubs, diamonds, hearts, spades
+     * @return Index of the card within the deck
+     */
+    public static int indexOf(int rank, int suit) {
+        return rank * SUITS + suit;
+    }
+
+    /**
+     * Finds the rank of a card index.
+     * @param index Index of the card within the deck
+     * @return Rank of the card, 0 for a Two up to 12 for an Ace
+     */
+    public static int rankOf(int index) {
+        return index / SUITS;
+    }
+
+    /**
+     * Finds the suit of a card index.
+     * @param index Index of the card within the deck
+     * @return Suit of the card, 0 to 3 for clubs, diamonds, hearts, spades
+     */
+    public static int suitOf(int index) {
+        return index % SUITS;
+    }
+
+    /**
+     * Adds one copy of a card.
+     * @param index Index of the card within the deck
+     */
+    public void add(int index) {
+        counts[index]++;
+        size++;
+        suitmasks[suitOf(index)] |= 1 << rankOf(index);
+    }
+
+    /**
+     * Adds one copy of the provided Card.
+     * @param c Card to add
+     */
+    public void add(Card c) {
+        add(c.getIndex());
+    }
+
+    /**
+     * Removes one copy of a card.
+     * @param index Index of the card within the deck
+     * @return True if a copy was removed, false if the deck held none
+     */
+    public boolean remove(int index) {
+        if(counts[index] == 0)
+            return false;
+        counts[index]--;
+        size--;
+        if(counts[index] == 0)
+            suitmasks[suitOf(index)] &= ~(1 << rankOf(index));
+        return true;
+    }
+
+    /**
+     * Removes several copies of a card.
+     * @param index Index of the card within the deck
+     * @param copies Number of copies to remove, no more than the deck holds
+     */
+    public void remove(int index, int copies) {
+        if(copies <= 0)
+            return;
+        counts[index] -= copies;
+        size -= copies;
+        if(counts[index] == 0)
+            suitmasks[suitOf(index)] &= ~(1 << rankOf(index));
+    }
+
+    /**
+     * Removes one copy of each card within a Hand.
+     * @param h Hand whose cards are removed
+     */
+    public void removeAll(Hand h) {
+        for(int i = 0; i < h.size(); i++)
+            remove(h.getIndex(i));
+    }
+
+    /**
+     * Checks how many copies of a card are in the deck.
+     * @param index Index of the card within the deck
+     * @return Number of copies
+     */
+    public int count(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Checks how many copies of a card are in the deck.
+     * @param rank Rank of the card, 0 for a Two up to 12 for an Ace
+     * @param suit Suit of the card, 0 to 3 for clubs, diamonds, hearts, spades
+     * @return Number of copies
+     */
+    public int count(int rank, int suit) {
+        return counts[rank * SUITS + suit];
+    }
+
+    /**
+     * Checks how many copies of one rank are in the deck, in any suit.
+     * @param rank Rank to check
+     * @return Number of copies
+     */
+    public int rankCount(int rank) {
+        int base = rank * SUITS;
+        return counts[base] + counts[base + 1] + counts[base + 2] + counts[base + 3];
+    }
+
+    /**
+     * Checks how many different suits of one rank are in the deck.
+     * @param rank Rank to check
+     * @return Number of suits with at least one copy
+     */
+    public int suitsOf(int rank) {
+        int suits = 0;
+        for(int s = 0; s < SUITS; s++)
+            if(counts[rank * SUITS + s] > 0)
+                suits++;
+        return suits;
+    }
+
+    /**
+     * Finds which ranks of one suit are in the deck.
+     * @param suit Suit to check
+     * @return Mask with bit r set if at least one card of rank r and this suit is left
+     */
+    public int suitMask(int suit) {
+        return suitmasks[suit];
+    }
+
+    /**
+     * Finds which ranks are in the deck, in any suit.
+     * @return Mask with bit r set if at least one card of rank r is left
+     */
+    public int rankMask() {
+        return suitmasks[CLUBS] | suitmasks[DIAMONDS] | suitmasks[HEARTS] | suitmasks[SPADES];
+    }
+
+    /**
+     * Finds the highest five numbers in a row within a rank mask.
+     * @param mask Rank mask, as from suitMask or rankMask
+     * @return Lowest rank of the highest run, or -1 if the mask holds no five numbers in a row
+     */
+    public static int highestRun(int mask) {
+        return HIGHESTRUN[mask];
+    }
+
+    /**
+     * Checks the number of Cards in the deck.
+     * @return Number of Cards, counting every copy
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Builds the canonical form of this deck. Swapping clubs, diamonds and hearts around never changes the best total
+     * a deck can score, so those three suits are reordered by what they hold. Spades stay put, as they score more in a
+     * Royal Flush. Decks that only differ by such a swap have equal canonical forms. The greedy pass is not symmetric
+     * in those suits, so only totals from the exact search may be shared this way.
+     * @return New Deck in canonical form
+     */
+    public Deck canonical() {
+        Integer[] order = {CLUBS, DIAMONDS, HEARTS};
+        Arrays.sort(order, this::compareSuits);
+        Deck deck = new Deck();
+        for(int r = 0; r < RANKS; r++) {
+            for(int s = 0; s < SUITS; s++) {
+                int from = s == SPADES ? SPADES : order[s];
+                int copies = counts[indexOf(r, from)];
+                deck.counts[indexOf(r, s)] = copies;
+                if(copies > 0)
+                    deck.suitmasks[s] |= 1 << r;
+            }
+        }
+        deck.size = size;
+        return deck;
+    }
+
+    /**
+     * Orders two suits by how many copies they hold of each rank, checking from the Ace down.
+     * @param first First suit to compare
+     * @param second Second suit to compare
+     * @return Negative if the first suit holds more at the highest rank where they differ, 0 if they hold the same
+     */
+    private int compareSuits(int first, int second) {
+        for(int r = ACE; r >= TWO; r--) {
+            int diff = counts[indexOf(r, second)] - counts[indexOf(r, first)];
+            if(diff != 0)
+                return diff;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the count vector.
+     * @return Number of copies of each card, indexed by rank * 4 + suit
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+}
@@ -0,0 +1,211 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary corpus of decks, written by DeckCorpusWriter, so large sets of decks can be loaded again without
+ * parsing any text. Any deck can be read by its number, so a batch can be split into shards or picked up where it
+ * stopped.
+ *
+ * The file starts with a header: the MAGIC number, the format VERSION, the number of decks and the offset of the
+ * index, as big-endian ints and longs. The records follow, one per deck. Each starts with a type byte: CARDS_RECORD
+ * is followed by the index of every card, one byte each; COUNTS_RECORD by the number of copies of each of the 52
+ * cards as varints; and ERROR_RECORD by the int error code of a line that could not be read. The index at the end
+ * holds the offset of every record, plus one past the last record. A writer that has not finished puts
+ * INCOMPLETE_DECKS in the header as the number of decks, and only writes the real header once the index is in place.
+ *
+ * Reads are served from blocks of the index and the records held in memory, so reading decks in order costs one
+ * read of the file per block. A DeckCorpus is not safe to share between threads; open one for each thread.
+ */
+public class DeckCorpus implements AutoCloseable {
+    public static final int MAGIC = 0x4846444B;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 24;
+    // Number of decks held in the header until the writer closes
+    public static final long INCOMPLETE_DECKS = -1;
+
+    public static final byte CARDS_RECORD = 0;
+    public static final byte COUNTS_RECORD = 1;
+    public static final byte ERROR_RECORD = 2;
+
+    // Error code for a record that is not laid out as the format expects
+    public static final int ERROR_RECORD_FORMAT = -30;
+
+    private static final int INDEX_BLOCK = 1 << 12;
+    private static final int DATA_BLOCK = 1 << 16;
+
+    private FileChannel channel;
+    private long count;
+    private long indexoffset;
+
+    // Offsets from the index, starting with that of deck indexfirst
+    private ByteBuffer indexblock = ByteBuffer.allocate(INDEX_BLOCK * Long.BYTES);
+    private long indexfirst = -1;
+    // Bytes of the file starting at datastart, of which the first datalength were read
+    private ByteBuffer datablock = ByteBuffer.allocate(DATA_BLOCK);
+    private long datastart = -1;
+    private int datalength;
+
+    /**
+     * Main constructor.
+     * @param path Corpus to read
+     * @throws IOException If the file cannot be read, or is not a corpus
+     */
+    public DeckCorpus(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(header, 0);
+            header.flip();
+            if(header.getInt() != MAGIC)
+                throw new IOException(path + " is not a deck corpus.");
+            int version = header.getInt();
+            if(version != VERSION)
+                throw new IOException(path + " is version " + version + " of the corpus format, not " + VERSION + ".");
+            count = header.getLong();
+            indexoffset = header.getLong();
+            if(count < 0 || indexoffset < HEADER_BYTES || indexoffset + (count + 1) * Long.BYTES != channel.size())
+                throw new IOException(path + " was not closed properly, so its index is missing.");
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether a file starts as a corpus does.
+     * @param path File to check
+     * @return True if the file starts with the MAGIC number
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isCorpus(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while(magic.hasRemaining() && file.read(magic) >= 0);
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Checks how many decks the corpus holds.
+     * @return Number of decks
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Reads one deck.
+     * @param n Number of the deck, from 0
+     * @param deck Deck to add the cards to, usually empty
+     * @return Number of cards added, or a negative error code if the deck could not be read when it was converted
+     * @throws IOException If the file cannot be read
+     */
+    public int read(long n, Deck deck) throws IOException {
+        if(n < 0 || n >= count)
+            throw new IndexOutOfBoundsException("Deck " + n + " of " + count);
+        long start = offsetOf(n);
+        long end = offsetOf(n + 1);
+        if(end <= start || end - start > Integer.MAX_VALUE)
+            return ERROR_RECORD_FORMAT;
+        ByteBuffer record = load(start, (int) (end - start));
+
+        byte type = record.get();
+        switch(type) {
+            case CARDS_RECORD: {
+                int cards = record.remaining();
+                for(int k = 0; k < cards; k++) {
+                    int index = record.get();
+                    if(index < 0 || index >= Deck.CARDS)
+                        return ERROR_RECORD_FORMAT;
+                    deck.add(index);
+                }
+                return cards;
+            }
+            case COUNTS_RECORD: {
+                int cards = 0;
+                for(int i = 0; i < Deck.CARDS; i++) {
+                    int copies = getVarint(record);
+                    if(copies < 0)
+                        return ERROR_RECORD_FORMAT;
+                    for(int copy = 0; copy < copies; copy++)
+                        deck.add(i);
+                    cards += copies;
+                }
+                return cards;
+            }
+            case ERROR_RECORD:
+                return record.remaining() == Integer.BYTES ? record.getInt() : ERROR_RECORD_FORMAT;
+            default:
+                return ERROR_RECORD_FORMAT;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds where a record starts, reading a new block of the index if needed.
+     */
+    private long offsetOf(long n) throws IOException {
+        if(indexfirst < 0 || n < indexfirst || n >= indexfirst + indexblock.limit() / Long.BYTES) {
+            indexblock.clear();
+            long entries = Math.min(INDEX_BLOCK, count + 1 - n);
+            indexblock.limit((int) entries * Long.BYTES);
+            readFully(indexblock, indexoffset + n * Long.BYTES);
+            indexfirst = n;
+        }
+        return indexblock.getLong((int) (n - indexfirst) * Long.BYTES);
+    }
+
+    /**
+     * Finds the bytes of a record, reading a new block of the file if they are not all held already.
+     * @return Buffer positioned at the start of the record and limited to its end
+     */
+    private ByteBuffer load(long start, int length) throws IOException {
+        if(datastart < 0 || start < datastart || start + length > datastart + datalength) {
+            if(datablock.capacity() < length)
+                datablock = ByteBuffer.allocate(length);
+            datablock.clear();
+            datablock.limit((int) Math.min(datablock.capacity(), indexoffset - start));
+            readFully(datablock, start);
+            datastart = start;
+            datalength = datablock.limit();
+        }
+        datablock.limit((int) (start - datastart) + length);
+        datablock.position((int) (start - datastart));
+        return datablock;
+    }
+
+    private void readFully(ByteBuffer into, long at) throws IOException {
+        while(into.hasRemaining()) {
+            int read = channel.read(into, at);
+            if(read < 0)
+                throw new IOException("Deck corpus ends early.");
+            at += read;
+        }
+    }
+
+    /**
+     * Reads a number written by DeckCorpusWriter.putVarint.
+     * @return The number, or -1 if it runs past the record or does not fit in an int
+     */
+    private static int getVarint(ByteBuffer record) {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            if(!record.hasRemaining())
+                return -1;
+            byte b = record.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0)
+                return value;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,271 @@
+package handfinder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes decks into the binary corpus format read by DeckCorpus. Decks are written one after another as they are
+ * added, and the offset index and final header are written by close.
+ *
+ * Until close, the header holds DeckCorpus.INCOMPLETE_DECKS instead of the number of decks, so DeckCorpus turns away
+ * a file whose writer never finished. Only one block of offsets is kept in memory; each full block goes to a temporary
+ * file beside the corpus, and close copies them in after the records. A writer that fails, or is aborted, never
+ * writes its index or real header, so what it leaves behind cannot be opened as a corpus.
+ */
+public class DeckCorpusWriter implements AutoCloseable {
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int OFFSET_BLOCK = 1 << 13;
+
+    private final Path path;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    // Where the next record starts within the file
+    private long position;
+    // Offsets of the records added since the last block was spilled, and the file holding the blocks before them
+    private ByteBuffer offsets = ByteBuffer.allocate(OFFSET_BLOCK * Long.BYTES);
+    private Path spillpath;
+    private FileChannel spill;
+    private long count;
+    // Set once writing has failed or been given up, so close leaves the corpus marked as unfinished
+    private boolean isaborted;
+
+    /**
+     * Main constructor, which creates or replaces the file.
+     * @param path File to write
+     * @throws IOException If the file cannot be opened
+     */
+    public DeckCorpusWriter(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // The header is written again once the number of decks and the index offset are known
+        writeHeader(DeckCorpus.INCOMPLETE_DECKS, 0);
+        position = DeckCorpus.HEADER_BYTES;
+        channel.position(position);
+    }
+
+    /**
+     * Converts a text file of decks, one per line, into a corpus. The text is read as bytes, so a line holding a bad
+     * card, or a byte that is not ASCII, is kept as a record of the parser's error code, and deck numbers still match
+     * line numbers. If the conversion fails partway, the corpus is left marked as unfinished.
+     * @param text File holding one deck per line, with cards separated by spaces
+     * @param corpus File to write
+     * @return Number of decks written
+     * @throws IOException If either file cannot be used
+     */
+    public static long convert(Path text, Path corpus) throws IOException {
+        try (InputStream in = Files.newInputStream(text);
+             DeckCorpusWriter writer = new DeckCorpusWriter(corpus)) {
+            try {
+                Deck deck = new Deck();
+                byte[] block = new byte[BUFFER_BYTES];
+                byte[] line = new byte[256];
+                int length = 0;
+                int read;
+                while((read = in.read(block)) >= 0) {
+                    for(int i = 0; i < read; i++) {
+                        if(block[i] == '\n') {
+                            writer.addLine(line, length, deck);
+                            length = 0;
+                        } else {
+                            if(length == line.length)
+                                line = Arrays.copyOf(line, length * 2);
+                            line[length++] = block[i];
+                        }
+                    }
+                }
+                if(length > 0)
+                    writer.addLine(line, length, deck);
+            } catch (IOException | RuntimeException | Error e) {
+                writer.abort();
+                throw e;
+            }
+            return writer.count;
+        }
+    }
+
+    /**
+     * Parses one line of text and adds it as a deck, or as an error record if it cannot be read.
+     */
+    private void addLine(byte[] line, int length, Deck deck) throws IOException {
+        deck.clear();
+        int read = CardParser.parseDeck(line, 0, length, deck);
+        if(read < 0)
+            addError(read);
+        else
+            add(deck);
+    }
+
+    /**
+     * Adds a deck, stored as a byte per card or as the count of each card, whichever is smaller.
+     * @param deck Cards to add
+     * @throws IOException If the file cannot be written
+     */
+    public void add(Deck deck) throws IOException {
+        int countsbytes = 0;
+        for(int i = 0; i < Deck.CARDS; i++)
+            countsbytes += varintBytes(deck.count(i));
+
+        if(deck.size() <= countsbytes) {
+            startRecord(1 + deck.size());
+            buffer.put(DeckCorpus.CARDS_RECORD);
+            for(int i = 0; i < Deck.CARDS; i++)
+                for(int copy = 0; copy < deck.count(i); copy++)
+                    put((byte) i);
+        } else {
+            startRecord(1 + countsbytes);
+            buffer.put(DeckCorpus.COUNTS_RECORD);
+            for(int i = 0; i < Deck.CARDS; i++)
+                putVarint(deck.count(i));
+        }
+    }
+
+    /**
+     * Adds a record for a deck that could not be read.
+     * @param code Negative error code from CardParser
+     * @throws IOException If the file cannot be written
+     */
+    public void addError(int code) throws IOException {
+        startRecord(1 + Integer.BYTES);
+        buffer.put(DeckCorpus.ERROR_RECORD);
+        reserve(Integer.BYTES);
+        buffer.putInt(code);
+    }
+
+    /**
+     * Gives up on the corpus, so close leaves its header marked as unfinished instead of writing the index. Used when
+     * the decks being added cannot all be read.
+     */
+    public void abort() {
+        isaborted = true;
+    }
+
+    /**
+     * Writes the offset index and the final header, and closes the file. The header is only written once the
+     * rest of the file is on disk, so a corpus is never marked finished before its index is. If writing failed or
+     * the writer was aborted, the file is closed without either, so DeckCorpus will not open it.
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if(channel == null)
+            return;
+        try {
+            if(isaborted)
+                return;
+            long indexoffset = position;
+            flush();
+            if(spill != null) {
+                long spilled = spill.size();
+                for(long at = 0; at < spilled; )
+                    at += spill.transferTo(at, spilled - at, channel);
+            }
+            // One offset past the last record as well, so every record's length is the gap to the next offset
+            addOffset(indexoffset);
+            offsets.flip();
+            while(offsets.hasRemaining())
+                channel.write(offsets);
+            channel.force(false);
+            writeHeader(count, indexoffset);
+        } finally {
+            channel.close();
+            channel = null;
+            if(spill != null) {
+                spill.close();
+                Files.delete(spillpath);
+                spill = null;
+            }
+        }
+    }
+
+    /**
+     * Notes where a new record starts, and makes room for its type byte.
+     * @param bytes Length of the record
+     */
+    private void startRecord(int bytes) throws IOException {
+        addOffset(position);
+        count++;
+        position += bytes;
+        reserve(1);
+    }
+
+    /**
+     * Adds an offset to the index, spilling the block held in memory first if it is full.
+     */
+    private void addOffset(long offset) throws IOException {
+        if(!offsets.hasRemaining()) {
+            try {
+                if(spill == null) {
+                    Path directory = path.toAbsolutePath().getParent();
+                    spillpath = Files.createTempFile(directory, path.getFileName().toString(), ".index");
+                    spill = FileChannel.open(spillpath, StandardOpenOption.WRITE, StandardOpenOption.READ);
+                }
+                offsets.flip();
+                while(offsets.hasRemaining())
+                    spill.write(offsets);
+            } catch (IOException e) {
+                isaborted = true;
+                throw e;
+            }
+            offsets.clear();
+        }
+        offsets.putLong(offset);
+    }
+
+    private void put(byte value) throws IOException {
+        reserve(1);
+        buffer.put(value);
+    }
+
+    /**
+     * Writes a number in seven-bit groups, lowest first, with the top bit set on every group but the last.
+     */
+    private void putVarint(int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        put((byte) value);
+    }
+
+    private static int varintBytes(int value) {
+        int bytes = 1;
+        while((value & ~0x7F) != 0) {
+            bytes++;
+            value >>>= 7;
+        }
+        return bytes;
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if(buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            isaborted = true;
+            throw e;
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader(long decks, long indexoffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DeckCorpus.HEADER_BYTES);
+        header.putInt(DeckCorpus.MAGIC).putInt(DeckCorpus.VERSION).putLong(decks).putLong(indexoffset);
+        header.flip();
+        long at = 0;
+        while(header.hasRemaining())
+            at += channel.write(header, at);
+    }
+}
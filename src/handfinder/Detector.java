@@ -0,0 +1,38 @@
+package handfinder;
+
+/**
+ * Each hand detector of HandFinder, in the order the search runs them.
+ *
+ * Order is set based on value of hand, except that Pair is checked before Two Pair, as it's easier afterward to just
+ * group pairs that are found.
+ */
+public enum Detector {
+    EVERY_CARD_FLUSH("checkEveryCardFlush"),
+    ROYAL_FLUSH("checkRoyalFlush"),
+    STRAIGHT_FLUSH("checkStraightFlush"),
+    FOUR_OF_A_KIND("checkFourOfAKind"),
+    FULL_HOUSE("checkFullHouse"),
+    FLUSH("checkFlush"),
+    STRAIGHT("checkStraight"),
+    THREE_OF_A_KIND("checkThreeOfAKind"),
+    PAIR("checkPair"),
+    TWO_PAIR("checkTwoPair"),
+    HIGH_CARD("checkHighCard");
+
+    // values() copies its array every time, so the search walks this one instead
+    static final Detector[] ORDER = values();
+
+    private final String methodname;
+
+    Detector(String methodname) {
+        this.methodname = methodname;
+    }
+
+    /**
+     * Returns the name of the HandFinder method for this detector.
+     * @return Method name, such as "checkPair"
+     */
+    public String getMethodName() {
+        return methodname;
+    }
+}
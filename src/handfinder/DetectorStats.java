@@ -0,0 +1,278 @@
+package handfinder;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records, for each hand detector, how often it ran, how long it took, how many cards it took out of the deck and how
+ * many hands it made, added up over every search on every thread.
+ *
+ * Recording is off unless the handfinder.stats system property is true or setEnabled(true) is called. While it is
+ * off, a search only reads one flag. While it is on, each detector run is also sent to JDK Flight Recorder as a
+ * handfinder.Detector event on JVMs that can define events at runtime (Java 12 and later), while a recording has that
+ * event turned on. The events are made through reflection so this still builds for older Java versions, where only the
+ * counters are kept. Whether the event is on is kept in a flag that Flight Recorder updates as recordings start and
+ * stop, so with no such recording a run costs the counters alone and no reflective call.
+ */
+public final class DetectorStats {
+    private static volatile boolean isenabled = Boolean.getBoolean("handfinder.stats");
+
+    private static final LongAdder[] calls = newAdders();
+    private static final LongAdder[] nanos = newAdders();
+    private static final LongAdder[] cards = newAdders();
+    private static final LongAdder[] hands = newAdders();
+
+    private DetectorStats() {
+    }
+
+    /**
+     * Copy of the counters at one moment.
+     */
+    public static class Snapshot {
+        private final long[] calls = new long[Detector.ORDER.length];
+        private final long[] nanos = new long[Detector.ORDER.length];
+        private final long[] cards = new long[Detector.ORDER.length];
+        private final long[] hands = new long[Detector.ORDER.length];
+
+        /**
+         * Checks how many times a detector ran.
+         * @param d Detector
+         * @return Number of runs
+         */
+        public long getCalls(Detector d) {
+            return calls[d.ordinal()];
+        }
+
+        /**
+         * Checks how long a detector spent running in total.
+         * @param d Detector
+         * @return Nanoseconds spent
+         */
+        public long getNanos(Detector d) {
+            return nanos[d.ordinal()];
+        }
+
+        /**
+         * Checks how many cards a detector took out of the decks it searched.
+         * @param d Detector
+         * @return Number of cards
+         */
+        public long getCards(Detector d) {
+            return cards[d.ordinal()];
+        }
+
+        /**
+         * Checks how many hands a detector made.
+         * @param d Detector
+         * @return Number of hands
+         */
+        public long getHands(Detector d) {
+            return hands[d.ordinal()];
+        }
+
+        /**
+         * Prints a table of every detector's counters.
+         * @param out Stream to print to
+         */
+        public void print(PrintStream out) {
+            out.println(String.format("%-20s %12s %14s %12s %12s", "Detector", "Calls", "ns/call", "Cards", "Hands"));
+            for(Detector d : Detector.ORDER) {
+                int i = d.ordinal();
+                out.println(String.format("%-20s %12d %14.1f %12d %12d", d.getMethodName(), calls[i],
+                        calls[i] == 0 ? 0.0 : (double) nanos[i] / calls[i], cards[i], hands[i]));
+            }
+        }
+    }
+
+    /**
+     * Checks whether detector runs are being recorded.
+     * @return True if recording is on
+     */
+    public static boolean isEnabled() {
+        return isenabled;
+    }
+
+    /**
+     * Turns recording of detector runs on or off.
+     * @param enabled True to record
+     */
+    public static void setEnabled(boolean enabled) {
+        isenabled = enabled;
+    }
+
+    /**
+     * Copies the counters as they stand.
+     * @return Snapshot of every detector's counters
+     */
+    public static Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        for(int i = 0; i < Detector.ORDER.length; i++) {
+            snapshot.calls[i] = calls[i].sum();
+            snapshot.nanos[i] = nanos[i].sum();
+            snapshot.cards[i] = cards[i].sum();
+            snapshot.hands[i] = hands[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public static void reset() {
+        for(int i = 0; i < Detector.ORDER.length; i++) {
+            calls[i].reset();
+            nanos[i].reset();
+            cards[i].reset();
+            hands[i].reset();
+        }
+    }
+
+    /**
+     * Starts a Flight Recorder event for one detector run.
+     * @return Event to pass to record, or null if no recording has the event turned on
+     */
+    static Object beginEvent() {
+        return FlightRecorder.isrecording ? FlightRecorder.begin() : null;
+    }
+
+    /**
+     * Records one detector run.
+     * @param d Detector that ran
+     * @param elapsed Nanoseconds it took
+     * @param taken Cards it took out of the deck
+     * @param made Hands it made
+     * @param event Event from beginEvent, or null
+     */
+    static void record(Detector d, long elapsed, int taken, int made, Object event) {
+        int i = d.ordinal();
+        calls[i].increment();
+        nanos[i].add(elapsed);
+        cards[i].add(taken);
+        hands[i].add(made);
+        if(event != null)
+            FlightRecorder.commit(event, d, taken, made);
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Detector.ORDER.length];
+        for(int i = 0; i < adders.length; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    /**
+     * Defines the handfinder.Detector event through jdk.jfr.EventFactory, if the JVM has it, and listens for
+     * recordings starting and stopping to know whether the event is turned on.
+     */
+    private static final class FlightRecorder {
+        // True while some recording has the event turned on
+        private static volatile boolean isrecording;
+        private static final Object factory;
+        private static Object eventtype;
+        private static Method isenabled;
+        private static Method newevent;
+        private static Method begin;
+        private static Method end;
+        private static Method set;
+        private static Method shouldcommit;
+        private static Method commit;
+
+        static {
+            Object made = null;
+            try {
+                Class<?> annotationclass = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueclass = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> factoryclass = Class.forName("jdk.jfr.EventFactory");
+                Class<?> eventclass = Class.forName("jdk.jfr.Event");
+
+                List<Object> annotations = new ArrayList<>();
+                annotations.add(annotationclass.getConstructor(Class.class, Object.class)
+                        .newInstance(Class.forName("jdk.jfr.Name"), "handfinder.Detector"));
+                annotations.add(annotationclass.getConstructor(Class.class, Object.class)
+                        .newInstance(Class.forName("jdk.jfr.Label"), "Hand Detector"));
+                annotations.add(annotationclass.getConstructor(Class.class, Object.class)
+                        .newInstance(Class.forName("jdk.jfr.Category"), new String[] {"HandFinder"}));
+
+                // Fields are set by position, in this order
+                List<Object> fields = new ArrayList<>();
+                fields.add(valueclass.getConstructor(Class.class, String.class).newInstance(String.class, "detector"));
+                fields.add(valueclass.getConstructor(Class.class, String.class).newInstance(int.class, "cards"));
+                fields.add(valueclass.getConstructor(Class.class, String.class).newInstance(int.class, "hands"));
+
+                made = factoryclass.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+                newevent = factoryclass.getMethod("newEvent");
+                begin = eventclass.getMethod("begin");
+                end = eventclass.getMethod("end");
+                set = eventclass.getMethod("set", int.class, Object.class);
+                shouldcommit = eventclass.getMethod("shouldCommit");
+                commit = eventclass.getMethod("commit");
+                eventtype = factoryclass.getMethod("getEventType").invoke(made);
+                isenabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+
+                // The listener is told when the recorder starts and whenever a recording changes state
+                Class<?> listenerclass = Class.forName("jdk.jfr.FlightRecorderListener");
+                Object listener = Proxy.newProxyInstance(listenerclass.getClassLoader(),
+                        new Class<?>[] {listenerclass}, FlightRecorder::onChange);
+                Class.forName("jdk.jfr.FlightRecorder").getMethod("addListener", listenerclass)
+                        .invoke(null, listener);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                made = null;
+                isrecording = false;
+            }
+            factory = made;
+        }
+
+        /**
+         * Handles a call to the listener by checking again whether the event is turned on.
+         * @param proxy Listener
+         * @param method Method called
+         * @param args Arguments to the method
+         * @return What an Object method returns for the listener, otherwise null
+         */
+        private static Object onChange(Object proxy, Method method, Object[] args) {
+            if(method.getDeclaringClass() == Object.class) {
+                switch(method.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: return "DetectorStats listener";
+                }
+            }
+            try {
+                isrecording = (Boolean) isenabled.invoke(eventtype);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                isrecording = false;
+            }
+            return null;
+        }
+
+        static Object begin() {
+            if(factory == null)
+                return null;
+            try {
+                Object event = newevent.invoke(factory);
+                begin.invoke(event);
+                return event;
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        static void commit(Object event, Detector d, int taken, int made) {
+            try {
+                end.invoke(event);
+                if(!(Boolean) shouldcommit.invoke(event))
+                    return;
+                set.invoke(event, 0, d.getMethodName());
+                set.invoke(event, 1, taken);
+                set.invoke(event, 2, made);
+                commit.invoke(event);
+            } catch (ReflectiveOperationException e) {
+                // The event is lost; the counters were already kept
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package handfinder;
+
+/**
+ * Scratch space for scoring one deck after another on the same thread: a Deck to fill and a HandFinder bound to it,
+ * whose counts, working copy and hand list are all reused. Once each has grown to the size of the largest deck seen,
+ * scoring with the greedy pass allocates nothing at all. The exact search still builds its own tables for each deck.
+ *
+ * A context is not safe to share between threads. Use current to get the one kept for the calling thread.
+ */
+public class EvaluationContext {
+    private static final ThreadLocal<EvaluationContext> GREEDY =
+            ThreadLocal.withInitial(() -> new EvaluationContext(false));
+    private static final ThreadLocal<EvaluationContext> EXACT =
+            ThreadLocal.withInitial(() -> new EvaluationContext(true));
+
+    private final Deck deck = new Deck();
+    private final HandFinder finder;
+
+    /**
+     * Main constructor.
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     */
+    public EvaluationContext(boolean useexactsolver) {
+        this.finder = new HandFinder(deck, useexactsolver);
+    }
+
+    /**
+     * Returns the context kept for the calling thread, creating it the first time.
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @return Context for this thread
+     */
+    public static EvaluationContext current(boolean useexactsolver) {
+        return useexactsolver ? EXACT.get() : GREEDY.get();
+    }
+
+    /**
+     * Empties the Deck held by this context, ready to be filled and scored with evaluate().
+     * @return The held Deck
+     */
+    public Deck reset() {
+        deck.clear();
+        return deck;
+    }
+
+    /**
+     * Scores the Deck held by this context.
+     * @return Total points for the deck
+     */
+    public int evaluate() {
+        return finder.findPoints();
+    }
+
+    /**
+     * Copies a deck into this context and scores it.
+     * @param cards Cards to score, which are not changed
+     * @return Total points for the deck
+     */
+    public int evaluate(Deck cards) {
+        deck.copyFrom(cards);
+        return finder.findPoints();
+    }
+
+    /**
+     * Reads a deck into this context and scores it.
+     * @param line Cards separated by spaces or tabs
+     * @return Total points for the deck, or the parser's negative error code if a card is bad
+     */
+    public int evaluate(CharSequence line) {
+        int read = CardParser.parseDeck(line, reset());
+        if(read < 0)
+            return read;
+        return finder.findPoints();
+    }
+
+    /**
+     * Returns the HandFinder that made the last evaluation, to count each kind of hand it found.
+     * @return HandFinder bound to the held Deck
+     */
+    public HandFinder getFinder() {
+        return finder;
+    }
+}
@@ -0,0 +1,782 @@
+package handfinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds the provably best way to split a deck into hands.
+ *
+ * The deck is held as a count of each of the 52 distinct cards, indexed by rank * 4 + suit where rank 0 is a Two and
+ * suits are ordered clubs, diamonds, hearts, spades. CardPrices first puts a price on each card, so that no hand the
+ * deck can make is worth more than its cards cost. The price of the whole deck is then an upper bound on the best
+ * split, and any split falls short of it by the slack of its hands: how much less each hand is worth than its cards.
+ * Most hands have far too much slack to be worth trying, which is what keeps the search small.
+ *
+ * The search takes the bound, rounded down to a multiple of 5, as its target, and looks for a split whose slack fits in
+ * what the target leaves. Each time it proves there is none, the target drops by 5 points, so the first split found
+ * is the best one, and the upper bound keeps getting tighter while it runs. Every card has some least share of slack
+ * it brings into any hand, and those shares add up to a lower bound on the slack of what is left, which cuts off most
+ * branches. At each step the search picks the card with the fewest hands that still fit, and tries those hands from
+ * the least slack up. What is left of the deck is memoized with the least slack it is known to need, which holds for
+ * every target, so each target carries on from the work done for the last one.
+ *
+ * A split that is good but not proved best is found before the search starts, by always taking the first hand the
+ * search would try, so there is a fair answer even if the search runs out of budget.
+ *
+ * Random decks of 52 to 100 cards finish in tens of milliseconds. Decks drawn from only one or two suits are priced
+ * well above their best split, because the prices pay for runs and Flushes that cannot all be made at once, and the
+ * slack shares say little about that. Proving each target out of reach can then take seconds and millions of states,
+ * and some such decks run past MAX_STATES, so callers must check isFinished() before taking the total as the best.
+ *
+ * The cards are only priced once solve() is called, and the pricing, the listing of hands and that first split are all
+ * charged to the budget given to solve(), just as the search is. Any of them that runs out of time carries on from
+ * where it stopped, or starts again, on the next call.
+ */
+public class ExactSolver {
+    public static final int RANKS = Deck.RANKS;
+    public static final int SUITS = Deck.SUITS;
+    public static final int CARDS = Deck.CARDS;
+
+    // Decks larger than this would let a count outgrow its 4 bits of the memo key, or the slack outgrow a long.
+    public static final int MAX_COPIES = 15;
+    public static final int MAX_CARDS = 500;
+
+    // The search gives up once it has seen this many states, which keeps the memo to about 40 MB.
+    public static final int MAX_STATES = 1 << 19;
+    // How many search calls go by between looks at the clock when solve() has a deadline
+    private static final int CLOCK_CHECK_MASK = 0x3;
+    // How many hands visited go by between looks at the clock while listing or pricing hands
+    private static final int TICK_MASK = 0xFF;
+
+    // Every hand is worth a multiple of this many points
+    private static final int POINT_STEP = 5;
+    private static final int SCALE = CardPrices.SCALE;
+
+    // The memo key packs the count of each card into 4 bits, 16 cards to a word
+    private static final int KEY_BITS = 4;
+    private static final int CARDS_PER_WORD = 64 / KEY_BITS;
+    private static final int KEY_WORDS = (CARDS + CARDS_PER_WORD - 1) / CARDS_PER_WORD;
+
+    // Packs a hand's extra slack above its number, which fits in this many bits, so lists sort by extra slack
+    private static final int HAND_BITS = 20;
+
+    private final int[] counts;
+    // Relaxation the prices come from, and the prices once it is solved
+    private final CardPrices pricing;
+    private long[] prices;
+    private long totalprice;
+    // Least slack per card of any hand holding the card, or null until the cards are priced
+    private long[] share;
+
+    // Hands the deck can make that might fit in the largest budget searched: their kind, cards, slack, and how much
+    // of the slack is on top of the shares of their cards.
+    private int handcount;
+    private HandType[] types;
+    private int[][] hands;
+    private long[] slack;
+    private long[] extra;
+    // Hands holding each card, by extra slack from the least up
+    private int[][] handsof;
+    // Every hand left off the lists has more extra slack than this
+    private long listlimit = -1;
+
+    // What is left of the deck while searching, as counts, a memo key, and a lower bound on the slack still to come
+    private final int[] left;
+    private final long[] key;
+    private int leftcards;
+    private long leftshare;
+    // Hands taken on the way down
+    private final int[] path;
+    private int depth;
+
+    private final MemoTable memo;
+    private boolean finished;
+    private boolean outofstates;
+    // Total that no split of the deck can beat, as proved so far
+    private int upperbound;
+    private boolean dived;
+
+    // Budget for the current call to solve(), counted in calls to search()
+    private long nodes;
+    private long maxnodes = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasdeadline;
+    private long ticks;
+
+    // Best split reached so far, as packed Hands
+    private int bestpoints;
+    private long[] bestsplit;
+
+    /**
+     * Main constructor. The cards are priced by the first call to solve().
+     * @param counts Number of copies of each card, indexed by rank * 4 + suit. The array is copied.
+     */
+    public ExactSolver(int[] counts) {
+        if(!canSolve(counts))
+            throw new IllegalArgumentException("Exact search supports between 0 and " + MAX_COPIES + " copies of a card.");
+        this.counts = counts.clone();
+        this.pricing = new CardPrices(this.counts);
+        int cards = 0;
+        for(int c = 0; c < CARDS; c++)
+            cards += this.counts[c];
+        this.upperbound = Integer.MAX_VALUE;
+        this.left = new int[CARDS];
+        this.key = new long[KEY_WORDS];
+        this.path = new int[cards];
+        this.memo = new MemoTable(MAX_STATES);
+    }
+
+    /**
+     * Checks whether a deck can be handed to the exact search.
+     * @param counts Number of copies of each card
+     * @return True if no card appears more than MAX_COPIES times and the deck holds no more than MAX_CARDS, false
+     *         otherwise
+     */
+    public static boolean canSolve(int[] counts) {
+        if(counts.length != CARDS)
+            return false;
+        int total = 0;
+        for(int c : counts) {
+            if(c < 0 || c > MAX_COPIES)
+                return false;
+            total += c;
+        }
+        return total <= MAX_CARDS;
+    }
+
+    /**
+     * Finds the best total score for the deck. Gives up if the search runs past MAX_STATES states.
+     * @param lowerbound A total that is already known to be reachable, such as the greedy result. Use 0 if unknown.
+     * @return The best total if it beats lowerbound, otherwise lowerbound
+     */
+    public int solve(int lowerbound) {
+        return solve(lowerbound, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Finds the best total score for the deck within a budget. Gives up if the search runs out of time, past
+     * maxnodes calls, or past MAX_STATES states. Calling this again carries on from the target and states already
+     * ruled out, so a search that ran out of time can be picked up again with a larger budget.
+     * @param lowerbound A total that is already known to be reachable, such as the greedy result. Use 0 if unknown.
+     * @param timeoutnanos Time the search may take, or Long.MAX_VALUE for no limit
+     * @param maxnodes Calls to the recursive search allowed, or Long.MAX_VALUE for no limit
+     * @return The best total if it beats lowerbound, otherwise lowerbound
+     */
+    public int solve(int lowerbound, long timeoutnanos, long maxnodes) {
+        nodes = 0;
+        outofstates = false;
+        this.maxnodes = maxnodes;
+        hasdeadline = timeoutnanos != Long.MAX_VALUE;
+        deadline = System.nanoTime() + timeoutnanos;
+        try {
+            priceCards();
+            int floor = Math.max(lowerbound, bestpoints);
+            if(handsof == null || listlimit < budgetFor(floor + POINT_STEP))
+                listHands(floor);
+            if(!dived) {
+                dive();
+                dived = true;
+                floor = Math.max(floor, bestpoints);
+            }
+            while(upperbound > floor) {
+                long budget = budgetFor(upperbound);
+                startSearch();
+                if(search(budget) <= budget)
+                    break;
+                upperbound -= POINT_STEP;
+            }
+            upperbound = Math.max(upperbound, floor);
+            finished = true;
+            return Math.max(lowerbound, upperbound);
+        } catch(SearchLimitException e) {
+            finished = false;
+            outofstates = e.isoutofstates;
+            return lowerbound;
+        } finally {
+            this.maxnodes = Long.MAX_VALUE;
+            hasdeadline = false;
+        }
+    }
+
+    /**
+     * Checks whether the last call to solve() searched the whole deck.
+     * @return True if the result of solve() is known to be the best, false if the search gave up
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Checks whether the search has given up for good, because it filled its memo. Calling solve() again with a
+     * larger budget cannot help once this happens.
+     * @return True if the search ran past MAX_STATES states
+     */
+    public boolean isOutOfStates() {
+        return outofstates;
+    }
+
+    /**
+     * Checks the highest total the search has not ruled out. This starts at the price of the deck once solve() has
+     * priced the cards, and drops by 5 points for every target the search rules out.
+     * @return The best total once solve() has finished, otherwise a bound no split of the deck can beat, which is
+     *         Integer.MAX_VALUE until the cards are priced
+     */
+    public int getUpperBound() {
+        return upperbound;
+    }
+
+    /**
+     * Checks the best total of any full split of the deck the search has reached, even if it gave up before proving
+     * it best.
+     * @return Total points of that split, or 0 if the search has not reached one
+     */
+    public int getBestFound() {
+        return bestpoints;
+    }
+
+    /**
+     * Checks how many calls to the recursive search the last call to solve() made.
+     * @return Number of calls
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Rebuilds the hands that make up the best total found by solve().
+     * @param best Total that solve() returned
+     * @return Hands that add up to best
+     */
+    public ArrayList<Hand> buildHands(int best) {
+        if(bestsplit == null || bestpoints != best) {
+            priceCards();
+            if(handsof == null || listlimit < budgetFor(best))
+                listHands(best - POINT_STEP);
+            startSearch();
+            long budget = budgetFor(best);
+            if(search(budget) > budget || bestpoints != best)
+                throw new IllegalStateException("No split reaches the expected total of " + best + ".");
+        }
+        return buildBestFound();
+    }
+
+    /**
+     * Rebuilds the hands of the best split the search has reached, as counted by getBestFound().
+     * @return Hands that add up to getBestFound(), or null if the search has not reached a full split
+     */
+    public ArrayList<Hand> buildBestFound() {
+        if(bestsplit == null)
+            return null;
+        ArrayList<Hand> built = new ArrayList<Hand>(bestsplit.length);
+        for(long packed : bestsplit)
+            built.add(new Hand(packed));
+        return built;
+    }
+
+    /**
+     * Prices the cards and works out the share of each, unless that is done already. The relaxation carries on from
+     * where it stopped if it ran out of time before.
+     */
+    private void priceCards() {
+        if(share != null)
+            return;
+        if(prices == null) {
+            if(!pricing.solveRelaxation(this::isOutOfTime))
+                throw new SearchLimitException(false);
+            prices = pricing.roundUp();
+            long total = 0;
+            for(int c = 0; c < CARDS; c++)
+                total += counts[c] * prices[c];
+            totalprice = total;
+            upperbound = Math.min(upperbound, (int) (total / SCALE / POINT_STEP * POINT_STEP));
+        }
+
+        long[] least = new long[CARDS];
+        Arrays.fill(least, Long.MAX_VALUE);
+        forEachHand((type, hand, size) -> {
+            tick();
+            long each = slackOf(type, hand, size) / size;
+            for(int k = 0; k < size; k++)
+                least[hand[k]] = Math.min(least[hand[k]], each);
+        });
+        share = least;
+    }
+
+    private boolean isOutOfTime() {
+        return hasdeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Counts a hand visited before the search, and gives up once in a while if time has run out.
+     */
+    private void tick() {
+        if((++ticks & TICK_MASK) == 0 && isOutOfTime())
+            throw new SearchLimitException(false);
+    }
+
+    /**
+     * Works out the most slack a split can have and still reach a total.
+     * @param points Total to reach
+     * @return Slack allowed, in thousandths of a point
+     */
+    private long budgetFor(int points) {
+        return totalprice - (long) points * SCALE;
+    }
+
+    /**
+     * Lists every hand that could fit in the largest budget searched, for each card it holds, with the least extra
+     * slack first. Every High Card is listed, so that the dive can always take one.
+     * @param floor Total already reached, so only splits beating it are searched for
+     */
+    private void listHands(int floor) {
+        long limit = Math.max(0, budgetFor(floor + POINT_STEP));
+        ArrayList<int[]> kept = new ArrayList<int[]>();
+        ArrayList<HandType> kepttypes = new ArrayList<HandType>();
+        forEachHand((type, hand, size) -> {
+            tick();
+            long over = slackOf(type, hand, size);
+            for(int k = 0; k < size; k++)
+                over -= share[hand[k]];
+            if(over <= limit || type == HandType.HIGH_CARD) {
+                kept.add(Arrays.copyOf(hand, size));
+                kepttypes.add(type);
+            }
+        });
+
+        // The lists are built aside and only kept once they are whole, so running out of time leaves the old ones
+        int count = kept.size();
+        if(count >= 1 << HAND_BITS)
+            throw new IllegalStateException("Too many hands to list: " + count + ".");
+        HandType[] newtypes = kepttypes.toArray(new HandType[count]);
+        int[][] newhands = kept.toArray(new int[count][]);
+        long[] newslack = new long[count];
+        long[] newextra = new long[count];
+        int[] listed = new int[CARDS];
+        for(int h = 0; h < count; h++) {
+            newslack[h] = slackOf(newtypes[h], newhands[h], newhands[h].length);
+            newextra[h] = newslack[h];
+            for(int c : newhands[h]) {
+                newextra[h] -= share[c];
+                listed[c]++;
+            }
+        }
+
+        long[][] sorted = new long[CARDS][];
+        for(int c = 0; c < CARDS; c++)
+            sorted[c] = new long[listed[c]];
+        Arrays.fill(listed, 0);
+        for(int h = 0; h < count; h++)
+            for(int c : newhands[h])
+                sorted[c][listed[c]++] = newextra[h] << HAND_BITS | h;
+        int[][] newhandsof = new int[CARDS][];
+        for(int c = 0; c < CARDS; c++) {
+            if(isOutOfTime())
+                throw new SearchLimitException(false);
+            Arrays.sort(sorted[c]);
+            newhandsof[c] = new int[sorted[c].length];
+            for(int k = 0; k < sorted[c].length; k++)
+                newhandsof[c][k] = (int) (sorted[c][k] & ((1 << HAND_BITS) - 1));
+        }
+        handcount = count;
+        types = newtypes;
+        hands = newhands;
+        slack = newslack;
+        extra = newextra;
+        handsof = newhandsof;
+        listlimit = limit;
+    }
+
+    /**
+     * Finds a fair split without backtracking, by always taking the first hand the search would try, and keeps it as
+     * the best found.
+     */
+    private void dive() {
+        startSearch();
+        while(leftcards > 0) {
+            // Each step looks through the lists of every card left, so the clock is checked at every one
+            if(isOutOfTime())
+                throw new SearchLimitException(false);
+            int card = pickCard(listlimit);
+            for(int h : handsof[card]) {
+                if(isAvailable(h)) {
+                    take(h);
+                    break;
+                }
+            }
+        }
+        keepSplit();
+    }
+
+    /**
+     * Resets what is left to the whole deck.
+     */
+    private void startSearch() {
+        System.arraycopy(counts, 0, left, 0, CARDS);
+        Arrays.fill(key, 0);
+        leftcards = 0;
+        leftshare = 0;
+        for(int c = 0; c < CARDS; c++) {
+            key[c / CARDS_PER_WORD] |= (long) counts[c] << (c % CARDS_PER_WORD * KEY_BITS);
+            leftcards += counts[c];
+            leftshare += counts[c] * share[c];
+        }
+        depth = 0;
+    }
+
+    /**
+     * Looks for a way to split what is left of the deck into hands with no more slack between them than the budget.
+     * Once one is found, the hands taken on the way down make a split of the whole deck, which is kept as the best
+     * found.
+     * @param budget Most slack the rest of the split may have
+     * @return Slack of the split found if it is within budget, otherwise a lower bound on the slack of any split of
+     *         what is left, which is greater than budget
+     */
+    private long search(long budget) {
+        if(++nodes > maxnodes || ((nodes & CLOCK_CHECK_MASK) == 0 && isOutOfTime()))
+            throw new SearchLimitException(false);
+        if(leftcards == 0) {
+            keepSplit();
+            return 0;
+        }
+        if(leftshare > budget)
+            return leftshare;
+        int found = memo.find(key);
+        if(found >= 0 && memo.value(found) > budget)
+            return memo.value(found);
+
+        // A hand with more extra slack than this cannot fit, whatever the rest of the split
+        long room = budget - leftshare;
+        int card = pickCard(room);
+        // Hands left off the lists cannot do better than this
+        long least = leftshare + listlimit + 1;
+        for(int h : handsof[card]) {
+            if(extra[h] > room) {
+                least = Math.min(least, leftshare + extra[h]);
+                break;
+            }
+            if(!isAvailable(h))
+                continue;
+            take(h);
+            long rest = search(budget - slack[h]);
+            give(h);
+            if(rest <= budget - slack[h])
+                return slack[h] + rest;
+            least = Math.min(least, slack[h] + rest);
+        }
+        memo.put(key, least);
+        return least;
+    }
+
+    /**
+     * Picks the card left with the fewest hands that could still fit, stopping early at a card with none or one.
+     * @param room Most extra slack a hand may have
+     * @return Card index
+     */
+    private int pickCard(long room) {
+        int best = -1;
+        int fewest = Integer.MAX_VALUE;
+        for(int c = 0; c < CARDS && fewest > 1; c++) {
+            if(left[c] == 0)
+                continue;
+            int fits = 0;
+            for(int h : handsof[c]) {
+                if(extra[h] > room || fits >= fewest)
+                    break;
+                if(isAvailable(h))
+                    fits++;
+            }
+            if(fits < fewest) {
+                fewest = fits;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private boolean isAvailable(int h) {
+        for(int c : hands[h])
+            if(left[c] == 0)
+                return false;
+        return true;
+    }
+
+    private void take(int h) {
+        for(int c : hands[h]) {
+            left[c]--;
+            key[c / CARDS_PER_WORD] -= 1L << (c % CARDS_PER_WORD * KEY_BITS);
+        }
+        leftcards -= hands[h].length;
+        leftshare -= slack[h] - extra[h];
+        path[depth++] = h;
+    }
+
+    private void give(int h) {
+        for(int c : hands[h]) {
+            left[c]++;
+            key[c / CARDS_PER_WORD] += 1L << (c % CARDS_PER_WORD * KEY_BITS);
+        }
+        leftcards += hands[h].length;
+        leftshare += slack[h] - extra[h];
+        depth--;
+    }
+
+    /**
+     * Keeps the hands taken on the way down as the best split found, if they beat it.
+     */
+    private void keepSplit() {
+        int points = 0;
+        for(int k = 0; k < depth; k++)
+            points += types[path[k]].getPoints();
+        if(bestsplit != null && points <= bestpoints)
+            return;
+        long[] split = new long[depth];
+        for(int k = 0; k < depth; k++) {
+            Hand hand = new Hand(types[path[k]]);
+            for(int c : hands[path[k]])
+                hand.addCard(c);
+            split[k] = hand.pack();
+        }
+        bestpoints = points;
+        bestsplit = split;
+    }
+
+    private long slackOf(HandType type, int[] hand, int size) {
+        long cost = 0;
+        for(int k = 0; k < size; k++)
+            cost += prices[hand[k]];
+        return cost - (long) type.getPoints() * SCALE;
+    }
+
+    /**
+     * Interface for a visitor of every hand the deck can make.
+     */
+    private interface HandVisitor {
+        /**
+         * Visits one hand.
+         * @param type Kind of hand
+         * @param hand Card indices, which are only valid until the visit returns
+         * @param size Number of cards
+         */
+        void visit(HandType type, int[] hand, int size);
+    }
+
+    /**
+     * Visits every hand the deck can make out of distinct cards. Five cards of one suit in a row are only visited as
+     * the Straight Flush or Royal Flush they make, never as a Straight or Flush.
+     */
+    private void forEachHand(HandVisitor visitor) {
+        int[] hand = new int[RANKS];
+        int[] held = new int[SUITS];
+        for(int c = 0; c < CARDS; c++) {
+            if(counts[c] > 0) {
+                hand[0] = c;
+                visitor.visit(HandType.HIGH_CARD, hand, 1);
+            }
+        }
+
+        for(int r = 0; r < RANKS; r++) {
+            int n = heldOf(r, held);
+            for(int a = 0; a < n; a++) {
+                for(int b = a + 1; b < n; b++) {
+                    hand[0] = held[a];
+                    hand[1] = held[b];
+                    visitor.visit(HandType.PAIR, hand, 2);
+                    for(int d = b + 1; d < n; d++) {
+                        hand[0] = held[a];
+                        hand[1] = held[b];
+                        hand[2] = held[d];
+                        visitor.visit(HandType.THREE_OF_A_KIND, hand, 3);
+                        for(int q = 0; q < RANKS; q++)
+                            if(q != r)
+                                visitFullHouses(visitor, hand, q);
+                    }
+                }
+            }
+            if(n == SUITS) {
+                System.arraycopy(held, 0, hand, 0, SUITS);
+                visitor.visit(HandType.FOUR_OF_A_KIND, hand, 4);
+            }
+        }
+
+        for(int low = Deck.TWO; low <= Deck.TEN; low++)
+            visitStraights(visitor, hand, low, 0);
+
+        for(int s = 0; s < SUITS; s++) {
+            visitFlushes(visitor, hand, s, 0, 0);
+            int ranks = 0;
+            for(int r = 0; r < RANKS; r++)
+                if(counts[Deck.indexOf(r, s)] > 0)
+                    hand[ranks++] = Deck.indexOf(r, s);
+            if(ranks == RANKS)
+                visitor.visit(HandType.EVERY_CARD_FLUSH, hand, RANKS);
+        }
+    }
+
+    /**
+     * Visits every Full House made of the Three of a Kind in hand[0..3) and a Pair of rank q.
+     */
+    private void visitFullHouses(HandVisitor visitor, int[] hand, int q) {
+        for(int a = 0; a < SUITS; a++) {
+            if(counts[Deck.indexOf(q, a)] == 0)
+                continue;
+            for(int b = a + 1; b < SUITS; b++) {
+                if(counts[Deck.indexOf(q, b)] == 0)
+                    continue;
+                hand[3] = Deck.indexOf(q, a);
+                hand[4] = Deck.indexOf(q, b);
+                visitor.visit(HandType.FULL_HOUSE, hand, 5);
+            }
+        }
+    }
+
+    /**
+     * Visits every Straight from rank low up, with the first k cards already in hand.
+     */
+    private void visitStraights(HandVisitor visitor, int[] hand, int low, int k) {
+        if(k == 5) {
+            int suits = 0;
+            for(int i = 0; i < 5; i++)
+                suits |= 1 << Deck.suitOf(hand[i]);
+            if(Integer.bitCount(suits) > 1)
+                visitor.visit(HandType.STRAIGHT, hand, 5);
+            return;
+        }
+        for(int s = 0; s < SUITS; s++) {
+            hand[k] = Deck.indexOf(low + k, s);
+            if(counts[hand[k]] > 0)
+                visitStraights(visitor, hand, low, k + 1);
+        }
+    }
+
+    /**
+     * Visits every Flush of one suit from rank from up, with the first k cards already in hand.
+     */
+    private void visitFlushes(HandVisitor visitor, int[] hand, int suit, int from, int k) {
+        if(k == 5) {
+            int low = Deck.rankOf(hand[0]);
+            boolean isrun = Deck.rankOf(hand[4]) - low == 4;
+            visitor.visit(isrun ? CardPrices.runType(low, suit) : HandType.FLUSH, hand, 5);
+            return;
+        }
+        for(int r = from; r <= Deck.ACE - 4 + k; r++) {
+            hand[k] = Deck.indexOf(r, suit);
+            if(counts[hand[k]] > 0)
+                visitFlushes(visitor, hand, suit, r + 1, k + 1);
+        }
+    }
+
+    /**
+     * Lists the suits the deck holds of one rank, as card indices.
+     * @return Number of cards listed
+     */
+    private int heldOf(int rank, int[] held) {
+        int n = 0;
+        for(int s = 0; s < SUITS; s++)
+            if(counts[Deck.indexOf(rank, s)] > 0)
+                held[n++] = Deck.indexOf(rank, s);
+        return n;
+    }
+
+    /**
+     * Open-addressing table from what is left of the deck to a lower bound on the slack any split of it has.
+     */
+    private static class MemoTable {
+        private long[] keys;
+        private long[] values;
+        private boolean[] used;
+        private int size;
+        private final int limit;
+
+        MemoTable(int limit) {
+            this.limit = limit;
+            allocate(1 << 12);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity * KEY_WORDS];
+            values = new long[capacity];
+            used = new boolean[capacity];
+            size = 0;
+        }
+
+        private int slotFor(long[] key) {
+            long h = 0;
+            for(int w = 0; w < KEY_WORDS; w++)
+                h = (h ^ key[w]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+            int mask = used.length - 1;
+            int slot = (int) h & mask;
+            while(used[slot] && !sameKey(slot, key))
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private boolean sameKey(int slot, long[] key) {
+            for(int w = 0; w < KEY_WORDS; w++)
+                if(keys[slot * KEY_WORDS + w] != key[w])
+                    return false;
+            return true;
+        }
+
+        int find(long[] key) {
+            int slot = slotFor(key);
+            return used[slot] ? slot : -1;
+        }
+
+        long value(int slot) {
+            return values[slot];
+        }
+
+        void put(long[] key, long value) {
+            int slot = slotFor(key);
+            if(used[slot]) {
+                // Keep the stronger of two bounds
+                values[slot] = Math.max(values[slot], value);
+                return;
+            }
+            if(size >= limit)
+                throw new SearchLimitException(true);
+            if((size + 1) * 2 > used.length) {
+                grow();
+                slot = slotFor(key);
+            }
+            used[slot] = true;
+            System.arraycopy(key, 0, keys, slot * KEY_WORDS, KEY_WORDS);
+            values[slot] = value;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldkeys = keys;
+            long[] oldvalues = values;
+            boolean[] oldused = used;
+            allocate(oldused.length * 2);
+            long[] k = new long[KEY_WORDS];
+            for(int i = 0; i < oldused.length; i++) {
+                if(!oldused[i])
+                    continue;
+                System.arraycopy(oldkeys, i * KEY_WORDS, k, 0, KEY_WORDS);
+                int slot = slotFor(k);
+                used[slot] = true;
+                System.arraycopy(k, 0, keys, slot * KEY_WORDS, KEY_WORDS);
+                values[slot] = oldvalues[i];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Thrown when the search runs past MAX_STATES states, or past the budget given to solve().
+     */
+    private static class SearchLimitException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final boolean isoutofstates;
+
+        SearchLimitException(boolean isoutofstates) {
+            super(isoutofstates ? "Exact search ran past " + MAX_STATES + " states." : "Exact search ran out of budget.",
+                    null, false, false);
+            this.isoutofstates = isoutofstates;
+        }
+    }
+}
@@ -1,30 +1,99 @@
 package handfinder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Hand {
-    private ArrayList<Card> hand;
-    private String handname;
-    private int points;
+    // A packed Hand holds its type in these bits, below the sign bit so packed Hands sort by type first
+    private static final int TYPE_SHIFT = 56;
+    // Each card of a packed Hand takes six bits, lowest first
+    private static final int CARD_BITS = 6;
+    private static final long CARD_MASK = (1L << CARD_BITS) - 1;
+
+    // Cards are held as their Deck indices, and only turned into Card views when asked for
+    private int[] hand;
+    private int size;
+    private HandType type;
+    // Packed form this Hand was made from, while its cards have not been decoded yet
+    private long packed;
+    private boolean isdecoded;
 
     /**
-     * Generic constructor.
+     * Generic constructor, creating an empty High Card.
      */
     public Hand() {
-        hand = new ArrayList<Card>();
-        handname = "x";
+        this(HandType.HIGH_CARD);
+    }
+
+    /**
+     * Constructor for an empty Hand of one kind.
+     * @param type Kind of hand, giving the name and value of this Hand
+     */
+    public Hand(HandType type) {
+        this.hand = new int[Math.min(5, type.getSize())];
+        this.type = type;
+        this.isdecoded = true;
     }
 
     /**
-     * Main constructor that creates this Hand with Cards (possibly null), a name, and its point value.
+     * Main constructor that creates this Hand with Cards (possibly null) and its kind.
      * @param cards Any Cards that already are part of this Hand
-     * @param handname The name to show on output for this Hand
-     * @param points The value of this Hand
+     * @param type Kind of hand, giving the name and value of this Hand
+     */
+    public Hand(ArrayList<Card> cards, HandType type) {
+        this.hand = new int[Math.max(5, cards.size())];
+        this.type = type;
+        this.isdecoded = true;
+        for(Card c : cards)
+            addCard(c);
+    }
+
+    /**
+     * Constructor for a view of a packed Hand. Its cards are only unpacked the first time they are asked for.
+     * @param packed Hand packed by pack()
+     */
+    public Hand(long packed) {
+        this.type = HandType.fromOrdinal((int) (packed >>> TYPE_SHIFT));
+        this.size = type.getSize();
+        this.packed = packed;
+    }
+
+    /**
+     * Packs this Hand into a single long: its type above TYPE_SHIFT, then six bits for each card, lowest first. An
+     * Every Card Flush has too many cards to fit, so only its suit is kept, which gives every card. Equal Every Card
+     * Flushes therefore pack the same, whatever order their cards were added in.
+     * @return Packed Hand, which new Hand(long) turns back into a Hand
      */
-    public Hand(ArrayList<Card> cards, String handname, int points) {
-        this.hand = cards;
-        this.handname = handname;
-        this.points = points;
+    public long pack() {
+        if(!isdecoded)
+            return packed;
+        if(size != type.getSize())
+            throw new IllegalStateException(type.getName() + " holds " + size + " cards instead of " + type.getSize() + ".");
+
+        long result = (long) type.ordinal() << TYPE_SHIFT;
+        if(type == HandType.EVERY_CARD_FLUSH)
+            return result | Deck.suitOf(hand[0]);
+        for(int i = 0; i < size; i++)
+            result |= (long) hand[i] << (i * CARD_BITS);
+        return result;
+    }
+
+    /**
+     * Unpacks the cards of a Hand made from its packed form.
+     */
+    private void decode() {
+        if(isdecoded)
+            return;
+        hand = new int[Math.max(5, size)];
+        if(type == HandType.EVERY_CARD_FLUSH) {
+            int suit = (int) (packed & CARD_MASK);
+            for(int i = 0; i < size; i++)
+                hand[i] = Deck.indexOf(Deck.ACE - i, suit);
+        } else {
+            for(int i = 0; i < size; i++)
+                hand[i] = (int) ((packed >>> (i * CARD_BITS)) & CARD_MASK);
+        }
+        isdecoded = true;
     }
 
     /**
@@ -33,7 +102,20 @@ public class Hand {
      * @return True if the Card was added successfully, false otherwise
      */
     public boolean addCard(Card c) {
-        return this.hand.add(c);
+        return addCard(c.getIndex());
+    }
+
+    /**
+     * Adds the card at the provided Deck index to this Hand.
+     * @param index rank * 4 + suit
+     * @return True if the card was added successfully, false otherwise
+     */
+    public boolean addCard(int index) {
+        decode();
+        if(size == hand.length)
+            hand = Arrays.copyOf(hand, Math.max(5, size * 2));
+        hand[size++] = index;
+        return true;
     }
 
     /**
@@ -41,7 +123,7 @@ public class Hand {
      * @return Number of Cards in Hand
      */
     public int size() {
-        return this.hand.size();
+        return this.size;
     }
 
     /**
@@ -50,7 +132,17 @@ public class Hand {
      * @return Card at "index"
      */
     public Card getCard(int index) {
-        return hand.get(index);
+        return Card.fromIndex(getIndex(index));
+    }
+
+    /**
+     * Checks for the Deck index of a specific card within a Hand.
+     * @param index Index of this Card within the Hand
+     * @return rank * 4 + suit of the Card at "index"
+     */
+    public int getIndex(int index) {
+        decode();
+        return hand[index];
     }
 
     /**
@@ -58,7 +150,19 @@ public class Hand {
      * @return All Cards within the Hand
      */
     public ArrayList<Card> getHand() {
-        return hand;
+        decode();
+        ArrayList<Card> cards = new ArrayList<Card>(size);
+        for(int i = 0; i < size; i++)
+            cards.add(Card.fromIndex(hand[i]));
+        return cards;
+    }
+
+    /**
+     * Returns the kind of this Hand.
+     * @return Kind of hand
+     */
+    public HandType getType() {
+        return type;
     }
 
     /**
@@ -66,17 +170,24 @@ public class Hand {
      * @return Points for this Hand
      */
     public int getPoints() {
-        return points;
+        return type.getPoints();
     }
 
     /**
-     * Resets the name and point value of this Hand. Mostly useful for reassigning a Royal Flush to a Royal Flush in Spades.
-     * @param newname New name of this Hand.
-     * @param newpoints New point value of this Hand.
+     * Returns the name of this Hand.
+     * @return Name shown on output, such as "Pair"
      */
-    public void reassignHand(String newname, int newpoints) {
-        this.handname = newname;
-        this.points = newpoints;
+    public String getName() {
+        return type.getName();
+    }
+
+    /**
+     * Resets the kind of this Hand. Mostly useful for reassigning a Royal Flush to a Royal Flush in Spades.
+     * @param newtype New kind of this Hand.
+     */
+    public void reassignHand(HandType newtype) {
+        decode();
+        this.type = newtype;
     }
 
     /**
@@ -84,22 +195,46 @@ public class Hand {
      * @return True if this Hand is a pair, false otherwise
      */
     public boolean isPair() {
-        return this.handname.equals("Pair");
+        return this.type == HandType.PAIR;
+    }
+
+    /**
+     * Checks that the cards of this Hand make the kind of hand it was given.
+     * @return True if HandClassifier finds this Hand's type in its cards, false otherwise
+     */
+    public boolean isValid() {
+        decode();
+        return HandClassifier.classify(hand, size) == type;
     }
 
     /**
      * Outputs to console this Hand's name, point value, and its Cards.
      */
     public void print() {
-        System.out.println(this.handname + " " + this.points);
-        for(Card c : hand)
-            c.print();
+        decode();
+        System.out.println(type.getName() + " " + type.getPoints());
+        for(int i = 0; i < size; i++)
+            Card.fromIndex(hand[i]).print();
+    }
+
+    /**
+     * Writes this Hand's name, point value, and its Cards on one line, such as "Pair 25 3d 3h".
+     * @param out Builder to write to
+     */
+    public void describe(StringBuilder out) {
+        decode();
+        out.append(type.getName()).append(' ').append(type.getPoints());
+        for(int i = 0; i < size; i++) {
+            Card c = Card.fromIndex(hand[i]);
+            out.append(' ').append(c.getFacevalue()).append(c.getSuit());
+        }
     }
 
     /**
      * Removes all Cards from the Hand.
      */
     public void clear() {
-        this.hand.clear();
+        decode();
+        this.size = 0;
     }
 }
@@ -0,0 +1,198 @@
+package handfinder;
+
+import java.util.Arrays;
+
+/**
+ * Tells which kind of hand a group of cards makes, in a few table lookups, so candidate groups can be checked
+ * without sorting them out by rank and suit each time. The tables are built once, when the class loads.
+ *
+ * A group is described by its shape: how many cards it holds, and how many of its ranks turn up at least two,
+ * three and four times. The shape alone settles every kind of hand made from one or two ranks. Five different ranks
+ * are looked up again by their rank mask, which tells a Straight from a Flush, a Straight Flush or a Royal Flush.
+ *
+ * Groups follow the same rules as the detectors in HandFinder: cards sharing a rank must be of different suits, but
+ * the two Pairs of a Two Pair may be of the same rank, as they can be when a deck holds copies of a card.
+ */
+public final class HandClassifier {
+    // Largest group checked by shape; the only bigger hand is an Every Card Flush
+    public static final int MAX_GROUP = 5;
+
+    private static final byte NONE = -1;
+    // Shape of five different ranks, which FIVE_RANKS settles
+    private static final byte FIVE_RANKS_SHAPE = -2;
+
+    // Kind of hand made by each shape of group whose cards all differ, as a HandType ordinal
+    private static final byte[] SHAPES = new byte[(MAX_GROUP + 1) * 3 * 2 * 2];
+    // Kind of hand made by five different ranks, by rank mask: row 0 for mixed suits, then one row for each suit
+    private static final byte[][] FIVE_RANKS = new byte[1 + Deck.SUITS][1 << Deck.RANKS];
+    static {
+        Arrays.fill(SHAPES, NONE);
+        int[] rankcounts = new int[Deck.RANKS];
+        for(int cards = 1; cards <= MAX_GROUP; cards++)
+            addShapes(rankcounts, 0, cards, cards);
+
+        for(byte[] row : FIVE_RANKS)
+            Arrays.fill(row, NONE);
+        for(int mask = 0; mask <= Deck.ALL_RANKS_MASK; mask++) {
+            if(Integer.bitCount(mask) != MAX_GROUP)
+                continue;
+            boolean isrun = Deck.highestRun(mask) >= 0;
+            if(isrun)
+                FIVE_RANKS[0][mask] = (byte) HandType.STRAIGHT.ordinal();
+            for(int suit = 0; suit < Deck.SUITS; suit++) {
+                HandType type = HandType.FLUSH;
+                if(mask == Deck.ROYAL_MASK)
+                    type = suit == Deck.SPADES ? HandType.ROYAL_FLUSH_IN_SPADES : HandType.ROYAL_FLUSH;
+                else if(isrun)
+                    type = HandType.STRAIGHT_FLUSH;
+                FIVE_RANKS[1 + suit][mask] = (byte) type.ordinal();
+            }
+        }
+    }
+
+    private HandClassifier() {
+    }
+
+    /**
+     * Finds the kind of hand a group of cards makes.
+     * @param cards Deck index of each card, rank * 4 + suit
+     * @return Kind of hand, or null if the cards do not make one
+     */
+    public static HandType classify(int... cards) {
+        return classify(cards, cards.length);
+    }
+
+    /**
+     * Finds the kind of hand made by the first cards of an array.
+     * @param cards Deck index of each card, rank * 4 + suit
+     * @param count Number of cards in the group
+     * @return Kind of hand, or null if the cards do not make one
+     */
+    public static HandType classify(int[] cards, int count) {
+        if(count == Deck.RANKS)
+            return isEveryCardFlush(cards) ? HandType.EVERY_CARD_FLUSH : null;
+        if(count < 1 || count > MAX_GROUP)
+            return null;
+
+        // Counts each rank in bit slices: a rank's bit is set in twice once it has turned up two times, and so on
+        int once = 0, twice = 0, thrice = 0, fourtimes = 0;
+        int suits = 0;
+        long seen = 0;
+        for(int i = 0; i < count; i++) {
+            int bit = 1 << Deck.rankOf(cards[i]);
+            fourtimes |= thrice & bit;
+            thrice |= twice & bit;
+            twice |= once & bit;
+            once |= bit;
+            suits |= 1 << Deck.suitOf(cards[i]);
+            seen |= 1L << cards[i];
+        }
+
+        if(Long.bitCount(seen) < count) {
+            // Only a Two Pair made of a single rank can use a card twice
+            if(count == 4 && Integer.bitCount(once) == 1 && isTwoPairOfOneRank(cards))
+                return HandType.TWO_PAIR;
+            return null;
+        }
+        int kind = SHAPES[shapeOf(count, Integer.bitCount(twice), Integer.bitCount(thrice),
+                Integer.bitCount(fourtimes))];
+        if(kind == FIVE_RANKS_SHAPE)
+            kind = FIVE_RANKS[Integer.bitCount(suits) == 1 ? 1 + Integer.numberOfTrailingZeros(suits) : 0][once];
+        return kind == NONE ? null : HandType.fromOrdinal(kind);
+    }
+
+    /**
+     * Finds the points a group of cards is worth as a single hand.
+     * @param cards Deck index of each card, rank * 4 + suit
+     * @return Points for the kind of hand the cards make, or 0 if they do not make one
+     */
+    public static int points(int... cards) {
+        HandType type = classify(cards);
+        return type == null ? 0 : type.getPoints();
+    }
+
+    private static int shapeOf(int cards, int twos, int threes, int fours) {
+        return cards + (MAX_GROUP + 1) * (twos + 3 * (threes + 2 * fours));
+    }
+
+    /**
+     * Fills in the shape of every group of a given size, by choosing how many cards of each rank it holds.
+     * @param rankcounts Cards chosen of each rank so far
+     * @param rank Next rank to choose for
+     * @param left Cards still to choose
+     * @param cards Size of the group
+     */
+    private static void addShapes(int[] rankcounts, int rank, int left, int cards) {
+        if(rank == Deck.RANKS) {
+            if(left == 0)
+                SHAPES[shapeOf(rankcounts)] = kindOf(rankcounts, cards);
+            return;
+        }
+        // Only four of one rank can differ in suit
+        for(int take = 0; take <= Math.min(left, Deck.SUITS); take++) {
+            rankcounts[rank] = take;
+            addShapes(rankcounts, rank + 1, left - take, cards);
+        }
+        rankcounts[rank] = 0;
+    }
+
+    private static int shapeOf(int[] rankcounts) {
+        int cards = 0, twos = 0, threes = 0, fours = 0;
+        for(int taken : rankcounts) {
+            cards += taken;
+            if(taken >= 2)
+                twos++;
+            if(taken >= 3)
+                threes++;
+            if(taken >= 4)
+                fours++;
+        }
+        return shapeOf(cards, twos, threes, fours);
+    }
+
+    /**
+     * Finds the kind of hand made by a group of different cards with the given number of each rank.
+     */
+    private static byte kindOf(int[] rankcounts, int cards) {
+        int ranks = 0, most = 0;
+        for(int taken : rankcounts) {
+            if(taken > 0)
+                ranks++;
+            most = Math.max(most, taken);
+        }
+        if(ranks == MAX_GROUP)
+            return FIVE_RANKS_SHAPE;
+        HandType type = null;
+        if(ranks == 1)
+            type = most == 1 ? HandType.HIGH_CARD : most == 2 ? HandType.PAIR : most == 3 ? HandType.THREE_OF_A_KIND
+                    : HandType.FOUR_OF_A_KIND;
+        else if(ranks == 2 && cards == 4 && most == 2)
+            type = HandType.TWO_PAIR;
+        else if(ranks == 2 && cards == 5 && most == 3)
+            type = HandType.FULL_HOUSE;
+        return type == null ? NONE : (byte) type.ordinal();
+    }
+
+    /**
+     * Checks whether four cards of one rank, some of them the same card, split into two Pairs. They do as long as no
+     * suit turns up more than twice.
+     */
+    private static boolean isTwoPairOfOneRank(int[] cards) {
+        int[] suitcounts = new int[Deck.SUITS];
+        for(int i = 0; i < 4; i++)
+            if(++suitcounts[Deck.suitOf(cards[i])] > 2)
+                return false;
+        return true;
+    }
+
+    private static boolean isEveryCardFlush(int[] cards) {
+        int suit = Deck.suitOf(cards[0]);
+        int mask = 0;
+        for(int i = 0; i < Deck.RANKS; i++) {
+            if(Deck.suitOf(cards[i]) != suit)
+                return false;
+            mask |= 1 << Deck.rankOf(cards[i]);
+        }
+        return mask == Deck.ALL_RANKS_MASK;
+    }
+}
@@ -1,44 +1,219 @@
 package handfinder;
 
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.io.BufferedReader;
 
 public class HandFinder {
-    private ArrayList<Card> masterlist;
+    private Deck deck;
     private ArrayList<Hand> totalhands;
+    private int totalpoints;
+    // Pairs found, kept apart so they can be grouped into Two Pairs even when the hands are not kept
+    private int pairsfound;
+    // False when only the points are wanted, so no Hands need to be built
+    private boolean keephands;
+    // How many of each kind of hand were found
+    private int[] handcounts = new int[HandType.count()];
+    // Hands made by the detectors so far, for DetectorStats
+    private int handsmade;
+    // Copy of the deck that the detectors take cards out of, reused from one search to the next
+    private Deck working;
+    // Copies of each suit taken by takeSuits
+    private int[] taken = new int[Deck.SUITS];
     private boolean isdebugmode;
+    private boolean useexactsolver;
+    // True once the exact search has proved the total is the best possible
+    private boolean isprovedbest;
     private int debugpoints;
     private String debugname;
 
-    private static final int SINGLE_CARD = 10;
-    private static final int PAIR = 25;
-    private static final int TWO_PAIR = 50;
-    private static final int THREE_OF_A_KIND = 60;
-    private static final int STRAIGHT = 70;
-    private static final int FLUSH = 80;
-    private static final int FULL_HOUSE = 90;
-    private static final int FOUR_OF_A_KIND = 100;
-    private static final int STRAIGHT_FLUSH = 150;
-    private static final int ROYAL_FLUSH = 300;
-    private static final int ROYAL_FLUSH_IN_SPADES = 400;
-    private static final int EVERY_CARD_FLUSH = 1000;
-
     /**
      * Main method.
-     * @param args Commandline arguments
+     * @param args Commandline arguments. Pass -exact to search for the best possible set of hands instead of the
+     *             faster greedy pass. Pass -batch followed by a file to score every deck in the file, one per line,
+     *             and -threads followed by a number to choose how many decks are scored at once. In batch mode,
+     *             -cache followed by a number remembers the totals of that many decks, so decks that repeat (in any
+     *             order, or with -exact also with clubs, diamonds and hearts swapped) are only scored once, and
+     *             -format followed by text, json or binary picks how the results are written. The batch file may
+     *             also be a binary corpus, in which case -start and -stop followed by deck numbers score just that
+     *             range of it. Pass
+     *             -convert followed by a text file of decks and a new file to turn the text into a corpus. Pass
+     *             -server followed by a port to keep running and score decks sent over a local connection instead.
+     *             Pass -simulate followed by a number of decks to draw that many random decks and summarize their
+     *             scores; -size sets the cards per deck (52 by default), -decks the number of full decks to draw from
+     *             (1 by default), and -seed the seed for the random numbers. Pass -enumerate followed by a number of
+     *             cards to score every deck of that size that can be drawn from the -decks full decks instead. Pass
+     *             -stats to print how often each hand detector ran and how long it took once done, and how often
+     *             the -cache found a deck already scored. Pass -deadline
+     *             followed by a number of milliseconds to score the deck typed in within that time, along with how far
+     *             its total could still be from the best. Pass -top followed by a number along with -batch and a
+     *             corpus to list only that many of its highest-scoring decks; add -tophands to also list the decks
+     *             with the most of each kind of hand. Pass -stream to score decks from standard input, one per
+     *             line, until it ends, writing each result to standard output as soon as it is ready.
      */
     public static void main(String[] args) {
-        System.out.println("Welcome to Deck Checker! Please input your deck.");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            String input = reader.readLine();
-            String[] cards = input.split(" ");
-            new HandFinder(cards, false, 0);
-        } catch (Exception e) {
-            e.printStackTrace();
+        boolean useexactsolver = false;
+        String batchfile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cachesize = 0;
+        int serverport = -1;
+        long simulations = 0;
+        int simulationsize = Deck.CARDS;
+        int pooldecks = 1;
+        long seed = System.nanoTime();
+        int enumeratesize = -1;
+        String format = "text";
+        long firstdeck = 0;
+        long lastdeck = Long.MAX_VALUE;
+        String[] convert = null;
+        long deadline = -1;
+        int topsize = 0;
+        boolean istophands = false;
+        boolean isstream = false;
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("-exact")) {
+                useexactsolver = true;
+            } else if(args[i].equals("-batch") && i + 1 < args.length) {
+                batchfile = args[++i];
+            } else if(args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-server") && i + 1 < args.length) {
+                serverport = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-cache") && i + 1 < args.length) {
+                cachesize = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-simulate") && i + 1 < args.length) {
+                simulations = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-size") && i + 1 < args.length) {
+                simulationsize = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-decks") && i + 1 < args.length) {
+                pooldecks = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-format") && i + 1 < args.length) {
+                format = args[++i];
+            } else if(args[i].equals("-start") && i + 1 < args.length) {
+                firstdeck = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-stop") && i + 1 < args.length) {
+                lastdeck = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-convert") && i + 2 < args.length) {
+                convert = new String[] {args[++i], args[++i]};
+            } else if(args[i].equals("-stats")) {
+                DetectorStats.setEnabled(true);
+            } else if(args[i].equals("-deadline") && i + 1 < args.length) {
+                deadline = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-top") && i + 1 < args.length) {
+                topsize = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-stream")) {
+                isstream = true;
+            } else if(args[i].equals("-tophands")) {
+                istophands = true;
+            } else if(args[i].equals("-enumerate") && i + 1 < args.length) {
+                enumeratesize = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println(args[i] + " is not a valid option.");
+                System.exit(-1);
+            }
+        }
+
+        if(serverport >= 0) {
+            try {
+                ScoringServer server = new ScoringServer(serverport, useexactsolver);
+                System.out.println("Scoring decks on port " + server.getPort() + ".");
+                server.run();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(-3);
+            }
+            return;
+        }
+
+        if(convert != null) {
+            try {
+                long decks = DeckCorpusWriter.convert(Paths.get(convert[0]), Paths.get(convert[1]));
+                System.out.println("Wrote " + decks + " decks to " + convert[1] + ".");
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(-5);
+            }
+        } else if(enumeratesize >= 0) {
+            Deck cards = new Deck();
+            for(int i = 0; i < pooldecks * Deck.CARDS; i++)
+                cards.add(i % Deck.CARDS);
+            SubsetEnumerator enumerator = null;
+            try {
+                enumerator = new SubsetEnumerator(new ForkJoinPool(threads), useexactsolver, cards, enumeratesize);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(-1);
+            }
+            enumerator.run().print();
+        } else if(simulations > 0) {
+            try {
+                new MonteCarloSimulator(threads, useexactsolver, pooldecks, simulationsize, seed).run(simulations).print();
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(-4);
+            }
+        } else if(isstream) {
+            try (FileChannel in = new FileInputStream(FileDescriptor.in).getChannel();
+                 FileChannel out = new FileOutputStream(FileDescriptor.out).getChannel()) {
+                new StreamScorer(threads, useexactsolver, format).run(in, out);
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(-7);
+            }
+        } else if(topsize > 0 && batchfile != null) {
+            try {
+                new CorpusRanker(threads, useexactsolver, topsize, istophands).run(Paths.get(batchfile)).print();
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(-6);
+            }
+        } else if(batchfile != null) {
+            try {
+                BatchFinder finder = new BatchFinder(threads, useexactsolver, cachesize, format);
+                finder.run(batchfile, firstdeck, lastdeck);
+                ResultCache cache = finder.getCache();
+                if(cache != null && DetectorStats.isEnabled())
+                    System.err.println("Cache hits: " + cache.getHits() + ", misses: " + cache.getMisses());
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(-2);
+            }
+        } else {
+            System.out.println("Welcome to Deck Checker! Please input your deck.");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            try {
+                String input = reader.readLine();
+                if(deadline >= 0) {
+                    Deck deck = new Deck();
+                    int read = CardParser.parseDeck(input, deck);
+                    if(read < 0)
+                        System.out.println("Could not read the deck, error " + read + ".");
+                    else
+                        new AnytimeSolver(deck).solve(deadline, TimeUnit.MILLISECONDS).print();
+                } else {
+                    String[] cards = input.split(" ");
+                    new HandFinder(cards, false, 0, useexactsolver);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
+
+        // Kept on System.err so it stays apart from any results
+        if(DetectorStats.isEnabled())
+            DetectorStats.snapshot().print(System.err);
     }
 
     /**
@@ -48,27 +223,51 @@ public class HandFinder {
      * @param debugpoints Integer to help apply unit tests
      */
     public HandFinder(String[] args, boolean isdebugmode, int debugpoints) {
+        this(args, isdebugmode, debugpoints, false);
+    }
+
+    /**
+     * Constructor that drives main program, optionally using the exact search.
+     * @param args Commandline arguments
+     * @param isdebugmode Boolean to assist with debugging unit tests
+     * @param debugpoints Integer to help apply unit tests
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     */
+    public HandFinder(String[] args, boolean isdebugmode, int debugpoints, boolean useexactsolver) {
         totalhands = new ArrayList<>();
         this.isdebugmode = isdebugmode;
         this.debugpoints = debugpoints;
+        this.useexactsolver = useexactsolver;
         boolean isdeckbuilt = buildList(args);
         if(!isdeckbuilt) {
             System.err.println("Failure occurred during deck build.");
             System.exit(-20);
         } else {
-            Collections.sort(masterlist);
             this.findBestHands();
         }
         System.out.println("Thanks for checking!");
     }
 
+    /**
+     * Constructor for evaluating a deck that has already been built, without printing anything. Call findHands to
+     * score it.
+     * @param deck Cards to search
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     */
+    public HandFinder(Deck deck, boolean useexactsolver) {
+        this.totalhands = new ArrayList<>();
+        this.keephands = true;
+        this.deck = deck;
+        this.useexactsolver = useexactsolver;
+    }
+
     /**
      *
      * @param args Commandline arguments
      * @return True if deck built successfully, false otherwise.
      */
     public boolean buildList(String[] args) {
-        masterlist = new ArrayList<Card>();
+        deck = new Deck();
         boolean addworked = true;
         String nextcard = "";
         int start = 0;
@@ -79,7 +278,12 @@ public class HandFinder {
         for(int i = start; i < args.length && addworked; i++) {
             // Input will be 'facevalue''suit', like QC (queen of clubs) or 4S (4 of spades)
             nextcard = args[i];
-            addworked = masterlist.add(Card.makeNewCard(nextcard));
+            int index = CardParser.parseCard(nextcard, 0, nextcard.length());
+            addworked = index >= 0;
+            if(addworked)
+                deck.add(index);
+            else
+                System.err.println(nextcard + " is not valid input for a card. " + CardParser.describeError(index));
         }
         return addworked;
     }
@@ -88,385 +292,263 @@ public class HandFinder {
      * Method that steps through all types of poker hands and checks the list of available cards for hands.
      */
     private void findBestHands() {
-        ArrayList<Card> cards = this.cloneMasterList();
-
-        // Order is set based on value of hand, except as noted below.
-        this.checkEveryCardFlush(cards);
-        this.checkRoyalFlush(cards);
-        this.checkStraightFlush(cards);
-        this.checkFourOfAKind(cards);
-        this.checkFullHouse(cards);
-        this.checkFlush(cards);
-        this.checkStraight(cards);
-        this.checkThreeOfAKind(cards);
-        // Pair is checked before Two Pair as it's easier afterward to just group pairs that are found.
-        this.checkPair(cards);
-        this.checkTwoPair();
-        this.checkHighCard(cards);
-
+        this.findHands();
         this.print();
     }
 
     /**
-     * Checks the total list of cards for a complete set of one suit.
-     * @param cards Available cards to search
+     * Steps through all types of poker hands and splits the deck into them, without printing anything. Each detector
+     * takes every hand of its kind left in the deck, so no Flush, Full House or Pair is missed, as some were before
+     * decks were held as counts. Totals can differ from those older versions: mostly higher, but sometimes lower,
+     * where a Flush now taken first breaks up Straights that were found instead.
+     * @return Total points of the hands found
      */
-    public void checkEveryCardFlush(ArrayList<Card> cards) {
-        int i = 0;
-        int nextstart = 1;
-        Hand h = new Hand(new ArrayList<Card>(), "Every Card Flush", EVERY_CARD_FLUSH);
-        while(i < cards.size() && h.size() < 13) {
-            Card c = cards.get(i);
-            if(h.size() == 0 && c.getNumber() == Card.ACE_VALUE) {
-                // If starting from the beginning, make sure this is an Ace. If so, add the card
-                h.addCard(c);
-            } else if(h.size() == 0 && c.getNumber() < Card.ACE_VALUE) {
-                // If starting from the beginning, and this is not an Ace, stop looking.
-                return;
-            } else {
-                // If a hand is started, look further
-                Card next = h.getCard(h.size() - 1);
-                if(c.getSuit() == next.getSuit() && c.getNumber() + 1 == next.getNumber()) {
-                    // If the cards match suit, and is next in order, add to the hand
-                    h.addCard(c);
-                } else if(c.getNumber() - 1 > next.getNumber()) {
-                    // If the cards are too far apart, restart the hand from the next card from originally started.
-                    h.clear();
-                    i = nextstart;
-                    nextstart++;
-                }
-            }
-            i++;
-        }
+    public int findHands() {
+        this.keephands = true;
+        return this.search();
+    }
 
-        // Add hand to total hands list
-        if(h.size() == 13) {
-            for(int k = 0; k < 13; k++) {
-                cards.remove(h.getCard(k));
+    /**
+     * Works out the total points for the deck without building any Hands. Each kind of hand is taken as many times
+     * as it can be at once, so the work done does not grow with the size of the deck. Nothing is allocated after the
+     * first call unless the exact search is used; getHandCount and print still give the number of each kind of hand.
+     * @return Total points of the hands that findHands would find
+     */
+    public int findPoints() {
+        this.keephands = false;
+        return this.search();
+    }
+
+    /**
+     * Runs each hand detector in turn over a copy of the deck.
+     * @return Total points of the hands found
+     */
+    private int search() {
+        if(working == null)
+            working = new Deck();
+        Deck cards = working;
+        cards.copyFrom(deck);
+        totalhands.clear();
+        totalpoints = 0;
+        pairsfound = 0;
+        Arrays.fill(handcounts, 0);
+
+        // Order is set by Detector
+        boolean isrecording = DetectorStats.isEnabled();
+        for(Detector d : Detector.ORDER) {
+            if(!isrecording) {
+                this.runDetector(d, cards);
+                continue;
             }
-            totalhands.add(h);
 
-            // Look for more if there are enough cards to check
-            if(cards.size() >= 13)
-                checkRoyalFlush(cards);
+            Object event = DetectorStats.beginEvent();
+            int before = cards.size();
+            int handsbefore = handsmade;
+            long start = System.nanoTime();
+            this.runDetector(d, cards);
+            long elapsed = System.nanoTime() - start;
+            DetectorStats.record(d, elapsed, before - cards.size(), handsmade - handsbefore, event);
         }
+
+        isprovedbest = false;
+        if(useexactsolver)
+            this.findExactHands();
+
+        return totalpoints;
     }
 
     /**
-     * Checks the total list of cards for a royal flush. If one is found, method is called again to find additional hands.
-     * @param cards Total list of all cards currently not assigned to a hand.
+     * Runs one hand detector.
+     * @param d Detector to run
+     * @param cards Available cards to search
      */
-    private void checkRoyalFlush(ArrayList<Card> cards) {
-        // Assign locals
-        int i = 0;
-        char suittomatch = 'x';
-        Hand h = new Hand(new ArrayList<Card>(), "Royal Flush", ROYAL_FLUSH);
-
-        // Check for a royal flush. If a card has a "following" number and a matching suit, add it.
-        while(i < cards.size() && h.size() < 5) {
-            boolean goodforroyalflush = false;
-            boolean moveindex = true;
-            Card c = cards.get(i);
-            if(c.isRoyal()) {
-                if(h.size() == 0) {
-                    h.addCard(c);
-                    suittomatch = c.getSuit();
-                } else {
-                    Card lastcard = h.getCard(h.size() - 1);
-                    if(lastcard.getNumber() == c.getNumber() && lastcard.getSuit() == c.getSuit())
-                        goodforroyalflush = true;
-
-                    if(goodforroyalflush) {
-                        if(c.getSuit() == suittomatch) {
-                            h.addCard(c);
-                        }
-                    }
-                }
-            } else {
-                // No more "royal" cards available. Stop calculating immediately.
-                return;
-            }
-            i++;
+    private void runDetector(Detector d, Deck cards) {
+        switch(d) {
+            case EVERY_CARD_FLUSH: this.checkEveryCardFlush(cards); break;
+            case ROYAL_FLUSH: this.checkRoyalFlush(cards); break;
+            case STRAIGHT_FLUSH: this.checkStraightFlush(cards); break;
+            case FOUR_OF_A_KIND: this.checkFourOfAKind(cards); break;
+            case FULL_HOUSE: this.checkFullHouse(cards); break;
+            case FLUSH: this.checkFlush(cards); break;
+            case STRAIGHT: this.checkStraight(cards); break;
+            case THREE_OF_A_KIND: this.checkThreeOfAKind(cards); break;
+            case PAIR: this.checkPair(cards); break;
+            case TWO_PAIR: this.checkTwoPair(); break;
+            case HIGH_CARD: this.checkHighCard(cards); break;
         }
+    }
 
-        // Add hand to total hands list
-        if(h.size() == 5) {
-            for(int k = 0; k < 5; k++) {
-                cards.remove(h.getCard(k));
-            }
-            totalhands.add(h);
+    /**
+     * Replaces the greedy hands with the best possible set of hands, if the exact search can beat them.
+     * The greedy total is used as the starting bound, so the search only explores splits that could do better.
+     * If the search gives up, the best split it reached is used instead when it beats the greedy one. Either way, and
+     * when the deck is too large to search at all, isProvedBest tells the caller the total may not be the best.
+     */
+    private void findExactHands() {
+        int[] counts = deck.getCounts();
+        if(!ExactSolver.canSolve(counts))
+            return;
 
-            if(h.getCard(0).getSuit() == 's') {
-                h.reassignHand("Royal Flush in Spades", ROYAL_FLUSH_IN_SPADES);
+        ExactSolver solver = new ExactSolver(counts);
+        int best = solver.solve(totalpoints);
+        isprovedbest = solver.isFinished();
+        boolean isreached = !solver.isFinished() && solver.getBestFound() > totalpoints;
+        if(isreached)
+            best = solver.getBestFound();
+        if(best > totalpoints) {
+            // The hands are built even when only points are wanted, so each kind of hand can still be counted
+            totalpoints = best;
+            ArrayList<Hand> found = isreached ? solver.buildBestFound() : solver.buildHands(best);
+            Arrays.fill(handcounts, 0);
+            for(Hand h : found)
+                handcounts[h.getType().ordinal()]++;
+            // The search scores Pairs as Two Pairs already, so only the counts and list need grouping
+            handcounts[HandType.TWO_PAIR.ordinal()] += handcounts[HandType.PAIR.ordinal()] / 2;
+            handcounts[HandType.PAIR.ordinal()] %= 2;
+            if(keephands) {
+                totalhands = found;
+                pairsfound = 0;
+                this.checkTwoPair();
             }
-			
-			// Look for more if there are enough cards to check
-            if(cards.size() >= 5)
-                checkRoyalFlush(cards);
         }
     }
 
     /**
-     * Finds all straight flushes in the available list of cards.
+     * Checks the total list of cards for a complete set of one suit.
      * @param cards Available cards to search
      */
-    private void checkStraightFlush(ArrayList<Card> cards) {
-        int i = 0;
-        Hand h = new Hand(new ArrayList<Card>(), "Straight Flush", STRAIGHT_FLUSH);
-        Card last;
-
-        while(i < cards.size()) {
-            Card c = cards.get(i);
-            if(h.size() == 0) {
-                h.addCard(c);
-            } else {
-                last = h.getCard(h.size() - 1);
-                if(last.getNumber() - 1 == c.getNumber() && last.getSuit() == c.getSuit()) {
-                    // This card is next in sequence, add this card
-                    h.addCard(c);
-                } else if(last.getNumber() - 1 > c.getNumber()) {
-                    // There is a gap in the cards (ex. going from Queen to Nine can't cover a straight). Reset the hand.
-                    h.clear();
-                    h.addCard(c);
-                } // No need to clear if the numbers are the same, just keep looking on to the next
-            }
-
-            if(h.size() == 5) {
-                for(int k = 0; k < 5; k++) {
-                    cards.remove(h.getCard(k));
-                }
-                totalhands.add(h);
+    public void checkEveryCardFlush(Deck cards) {
+        for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+            int copies = Integer.MAX_VALUE;
+            for(int r = Deck.TWO; r <= Deck.ACE; r++)
+                copies = Math.min(copies, cards.count(r, s));
+            takeRun(cards, s, Deck.TWO, Deck.RANKS, copies, newHands(HandType.EVERY_CARD_FLUSH, copies));
+        }
+    }
 
-                // Look for more if there are enough cards to check
-                if(cards.size() >= 5)
-                    checkStraightFlush(cards);
-                return;
-            }
-            i++;
+    /**
+     * Checks the total list of cards for a royal flush, taking as many as can be found.
+     * @param cards Total list of all cards currently not assigned to a hand.
+     */
+    void checkRoyalFlush(Deck cards) {
+        for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+            int copies = Integer.MAX_VALUE;
+            for(int r = Deck.TEN; r <= Deck.ACE; r++)
+                copies = Math.min(copies, cards.count(r, s));
+
+            Hand[] found;
+            if(s == Deck.SPADES)
+                found = newHands(HandType.ROYAL_FLUSH_IN_SPADES, copies);
+            else
+                found = newHands(HandType.ROYAL_FLUSH, copies);
+            takeRun(cards, s, Deck.TEN, 5, copies, found);
         }
     }
 
     /**
-     * Finds all four-of-a-kind hands in the available list of cards.
+     * Finds all straight flushes in the available list of cards, highest first.
      * @param cards Available cards to search
      */
-    private void checkFourOfAKind(ArrayList<Card> cards) {
-        int i = 0;
-        Hand h = new Hand(new ArrayList<Card>(), "Four of a Kind", FOUR_OF_A_KIND);
-        Card last;
-
-        while(i < cards.size() || h.size() == 5) {
-            Card c = cards.get(i);
-            if(h.size() == 0) {
-                h.addCard(c);
-            } else {
-                last = h.getCard(h.size() - 1);
-                if(last.getSuit() != c.getSuit() && last.getNumber() == c.getNumber()) {
-                    // This card matches suit, add this card
-                    h.addCard(c);
-                } else if(last.getNumber() != c.getNumber()) {
-                    // There is a gap in the cards. Reset the hand.
-                    h.clear();
-                    h.addCard(c);
+    void checkStraightFlush(Deck cards) {
+        while(true) {
+            // Find the suit holding the highest run. Runs topped by an Ace were already taken as Royal Flushes.
+            int low = -1;
+            int suit = -1;
+            for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+                int run = Deck.highestRun(cards.suitMask(s));
+                if(run > low) {
+                    low = run;
+                    suit = s;
                 }
             }
-
-            if(h.size() == 4) {
-                for(int k = 0; k < 4; k++) {
-                    cards.remove(h.getCard(k));
-                }
-                totalhands.add(h);
-
-                // Look for more if there are enough cards to check, and break out of this loop to prevent incorrect state
-                if(cards.size() >= 4)
-                    checkFourOfAKind(cards);
+            if(low < 0)
                 return;
-            }
-            i++;
+
+            // The same run stays the highest until one of its cards runs out, so take that many at once
+            int copies = Integer.MAX_VALUE;
+            for(int r = low; r < low + 5; r++)
+                copies = Math.min(copies, cards.count(r, suit));
+            takeRun(cards, suit, low, 5, copies, newHands(HandType.STRAIGHT_FLUSH, copies));
         }
     }
 
     /**
-     * Finds all full houses in the available list of cards.
+     * Finds all four-of-a-kind hands in the available list of cards.
      * @param cards Available cards to search
      */
-    private void checkFullHouse(ArrayList<Card> cards) {
-        Hand h = new Hand(new ArrayList<Card>(), "Full House", FULL_HOUSE);
-        for(int i = 0; i < cards.size(); i++) {
-            Card c = cards.get(i);
-            h.addCard(c);
-
-            // Look for a possible pair or three of a kind, or if not at least a pair
-            for(int j = i + 1; j < cards.size() && h.size() < 3; j++) {
-                Card check = cards.get(j);
-
-                boolean pass = true;
-                for(Card card : h.getHand())
-                    if(card != check)
-                        if(card.getSuit() == check.getSuit() || card.getNumber() != check.getNumber())
-                            pass = false;
-
-                if(pass)
-                    h.addCard(check);
-
-            }
-
-            if(h.size() == 3) {
-                // If a three-of-a-kind was found, look for a pair
-                for(int j = i + 1; j < cards.size() - 1 && h.size() < 5; j++) {
-                    Card check = cards.get(j);
-
-                    // Make sure the card isn't already in the hand first
-                    boolean uniquecard = true;
-                    for(Card card : h.getHand())
-                        if (card.equals(check))
-                            uniquecard = false;
-
-                    if(uniquecard) {
-                        Card next = cards.get(j + 1);
-                        if(next.getNumber() == check.getNumber() && next.getSuit() != check.getSuit()) {
-                            // Found a pair! Add these cards and the code will automatically pop out of the for loop
-                            h.addCard(check);
-                            h.addCard(next);
-                        }
-                    }
-                }
-            } else if(h.size() == 2) {
-                // If a pair was found, look for a three-of-a-kind
-                for(int j = i + 1; j < cards.size() - 2 && h.size() < 5; j++) {
-                    Card check = cards.get(j);
-
-                    // Make sure the card isn't already in the hand first
-                    boolean uniquecard = true;
-                    for(Card card : h.getHand())
-                        if(card.equals(check))
-                            uniquecard = false;
-
-                    if(uniquecard) {
-                        int index = j + 1;
-                        Card first = cards.get(index);
-                        boolean continueloop = true;
-                        while(check.getNumber() == first.getNumber() && index < cards.size() - 2 && continueloop) {
-                            index++;
-                            if(check.getSuit() != first.getSuit()) {
-                                // The two cards COULD combine for a three-of-a-kind!
-                                //Card second = cards.getHand(++index);
-                                Card second = cards.get(index);
-                                while(first.getNumber() == second.getNumber() && index < cards.size() - 1) {
-                                    if(first.getSuit() != second.getSuit()) {
-                                        // Found a three-of-a-kind!
-                                        h.addCard(check);
-                                        h.addCard(first);
-                                        h.addCard(second);
-                                        continueloop = false;
-                                        break;
-                                    } else {
-                                        // Same suit, just look at the next card
-                                        //second = cards.getHand(++index);
-                                        index++;
-                                        second = cards.get(index);
-                                    }
-                                }
-                            } else {
-                                // Same suit, just look at the next card
-                                first = cards.get(++index);
-                            }
-                        }
-                    }
-                }
-            }
+    void checkFourOfAKind(Deck cards) {
+        for(int r = Deck.ACE; r >= Deck.TWO; r--) {
+            int copies = countHands(cards, r, 4);
+            takeSuits(cards, r, 4, copies, newHands(HandType.FOUR_OF_A_KIND, copies));
+        }
+    }
 
-            if(h.size() == 5) {
-                for(int k = 0; k < 5; k++) {
-                    cards.remove(h.getCard(k));
+    /**
+     * Finds all full houses in the available list of cards. The highest three-of-a-kind is matched with the highest
+     * pair of a different number.
+     * @param cards Available cards to search
+     */
+    void checkFullHouse(Deck cards) {
+        for(int r = Deck.ACE; r >= Deck.TWO; r--) {
+            int threes = countHands(cards, r, 3);
+            for(int pair = Deck.ACE; pair >= Deck.TWO && threes > 0; pair--) {
+                if(pair != r) {
+                    int copies = Math.min(threes, countHands(cards, pair, 2));
+                    Hand[] found = newHands(HandType.FULL_HOUSE, copies);
+                    takeSuits(cards, r, 3, copies, found);
+                    takeSuits(cards, pair, 2, copies, found);
+                    threes = countHands(cards, r, 3);
                 }
-                totalhands.add(h);
-
-                // Look for more if there are enough cards to check
-                if(cards.size() >= 5)
-                    checkFullHouse(cards);
-
-                return;
             }
-            h.clear();
         }
     }
 
     /**
-     * Finds all flushes in the available list of cards.
+     * Finds all flushes in the available list of cards, using the highest five numbers of a suit each time.
      * @param cards Available cards to search
      */
-    private void checkFlush(ArrayList<Card> cards) {
-        int i = 0;
-        Hand h = new Hand(new ArrayList<Card>(), "Flush", FLUSH);
-        Card last;
-
-        while(i < cards.size() || h.size() == 5) {
-            Card c = cards.get(i);
-            if(h.size() == 0) {
-                h.addCard(c);
-            } else {
-                last = h.getCard(h.size() - 1);
-                if(last.getSuit() == c.getSuit() && last.getNumber() != c.getNumber()) {
-                    // This card matches suit, add this card
-                    h.addCard(c);
-                }
-                // Don't remove all cards from this hand until every card is counted
-            }
-            if(h.size() == 5) {
+    void checkFlush(Deck cards) {
+        for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+            while(Integer.bitCount(cards.suitMask(s)) >= 5) {
+                // The same five numbers stay the highest until one of them runs out, so take that many at once
+                int mask = cards.suitMask(s);
+                int top = 0;
+                int copies = Integer.MAX_VALUE;
                 for(int k = 0; k < 5; k++) {
-                    cards.remove(h.getCard(k));
+                    int r = 31 - Integer.numberOfLeadingZeros(mask);
+                    copies = Math.min(copies, cards.count(r, s));
+                    top |= 1 << r;
+                    mask &= ~(1 << r);
                 }
-                totalhands.add(h);
 
-                // Look for more if there are enough cards to check
-                if(cards.size() >= 5)
-                    checkFlush(cards);
-                return;
+                Hand[] found = newHands(HandType.FLUSH, copies);
+                for(; top != 0; top &= ~Integer.highestOneBit(top)) {
+                    int r = 31 - Integer.numberOfLeadingZeros(top);
+                    cards.remove(Deck.indexOf(r, s), copies);
+                    if(found != null)
+                        for(Hand h : found)
+                            h.addCard(Deck.indexOf(r, s));
+                }
             }
-            i++;
         }
     }
 
 	/**
-	 * Finds all straights in the available list of cards.
+	 * Finds all straights in the available list of cards, highest first.
 	 * @param cards Available cards to search
 	 */
-    private void checkStraight(ArrayList<Card> cards) {
-		// Assign locals
-		int i = 0;
-		Hand h = new Hand(new ArrayList<Card>(), "Straight", STRAIGHT);
-		Card last;
-		
-		// Check for a straight. If a card has a "following" card, add it to the hand.
-		while(i < cards.size() && h.size() < 5) {
-			Card c = cards.get(i);
-			if(h.size() == 0) {
-				h.addCard(c);
-			} else {
-				last = h.getCard(h.size() - 1);
-				if(last.getNumber() - 1 == c.getNumber()) {
-					// This card is next in sequence, add this card
-					h.addCard(c);
-				} else if(last.getNumber() - 1 > c.getNumber()) {
-					// There is a gap in the cards (ex. going from Queen to Nine can't cover a straight). Reset the hand.
-					h.clear();
-					h.addCard(c);
-				}
-			}
-			i++;
-		}
-		
-		// Add hand to total hands list
-        if(h.size() == 5) {
-            for(int k = 0; k < 5; k++) {
-                cards.remove(h.getCard(k));
-            }
-            totalhands.add(h);
-			
-			// Look for more if there are enough cards to check
-            if(cards.size() >= 5)
-                checkStraight(cards);
+    void checkStraight(Deck cards) {
+        int low = Deck.highestRun(cards.rankMask());
+        while(low >= 0) {
+            // The same run stays the highest until one of its numbers runs out, so take that many at once
+            int copies = Integer.MAX_VALUE;
+            for(int r = low; r < low + 5; r++)
+                copies = Math.min(copies, cards.rankCount(r));
+
+            Hand[] found = newHands(HandType.STRAIGHT, copies);
+            for(int r = low + 4; r >= low; r--)
+                takeSuits(cards, r, 1, copies, found);
+            low = Deck.highestRun(cards.rankMask());
         }
     }
 
@@ -474,111 +556,68 @@ public class HandFinder {
      * Finds all three-of-a-kind hands in the current list of cards.
      * @param cards Available cards to search
      */
-    private void checkThreeOfAKind(ArrayList<Card> cards) {
-		Hand h = new Hand(new ArrayList<Card>(), "Three of a Kind", THREE_OF_A_KIND);
-		Card current = new Card();
-		Card first = new Card();
-		Card second = new Card();
-		for(int i = 0; i < cards.size() && cards.size() > 3; i++) {
-			current = cards.get(i);
-			if(h.size() == 0) {
-				h.addCard(current);
-			} else if(h.size() == 1) {
-				first = h.getCard(0);
-				// If there is a mismatch in the number, start over with the new card.
-				if(current.getNumber() == first.getNumber()) {
-					if(current.getSuit() != first.getSuit()) {
-						// The two cards are the same number, but different suits. Add this card to the hand.
-						h.addCard(current);
-					}
-				} else {
-					// There is a new number, reset the hand and start over.
-					h = new Hand(new ArrayList<Card>(), "Three of a Kind", THREE_OF_A_KIND);
-					h.addCard(current);
-				}
-			} else if(h.size() == 2) {
-				first = h.getCard(0);
-				second = h.getCard(1);
-				// If there is a mismatch in the number, start over with the new card.
-				if(current.getNumber() == second.getNumber()) {
-					if(current.getSuit() != first.getSuit() && current.getSuit() != second.getSuit()) {
-						// There is a uniqueness to all three cards' suits, the three of a kind is complete!
-						h.addCard(current);
-						totalhands.add(h);
-						cards.remove(first);
-						cards.remove(second);
-						cards.remove(current);
-						
-						// Start over from the beginning
-						i = -1;
-					}
-				} else {
-					// There is a mismatch in the number on the sorted cards. No more three of a kinds are possible.
-					h = new Hand(new ArrayList<Card>(), "Three of a Kind", THREE_OF_A_KIND);
-					h.addCard(current);
-				}
-			}
-		}
+    void checkThreeOfAKind(Deck cards) {
+        for(int r = Deck.ACE; r >= Deck.TWO; r--) {
+            int copies = countHands(cards, r, 3);
+            takeSuits(cards, r, 3, copies, newHands(HandType.THREE_OF_A_KIND, copies));
+        }
     }
 
     /**
      * Finds all pairs that were earlier found, then groups them into hands that are Two Pair.
      */
-    private void checkTwoPair() {
-        Hand first = new Hand();
-        Hand second;
+    void checkTwoPair() {
+        totalpoints += (pairsfound / 2) * (HandType.TWO_PAIR.getPoints() - 2 * HandType.PAIR.getPoints());
+        handcounts[HandType.PAIR.ordinal()] -= (pairsfound / 2) * 2;
+        handcounts[HandType.TWO_PAIR.ordinal()] += pairsfound / 2;
+        handsmade += pairsfound / 2;
+        if(keephands)
+            totalhands = groupPairs(totalhands);
+    }
 
-        for(int i = 0; i < totalhands.size(); i++) {
-            second = totalhands.get(i);
-            if(second.isPair()) {
-                if (first.size() == 0) {
-                    first = totalhands.get(i);
-                } else {
-                    Hand twopair = new Hand(new ArrayList<Card>(), "Two Pair", TWO_PAIR);
-                    twopair.addCard(first.getCard(0));
-                    twopair.addCard(first.getCard(1));
-                    twopair.addCard(second.getCard(0));
-                    twopair.addCard(second.getCard(1));
-
-                    totalhands.add(twopair);
-                    totalhands.remove(first);
-                    totalhands.remove(second);
-                    i -= 2;
-
-                    first = new Hand();
-                }
+    /**
+     * Joins the Pairs in a list of Hands into Two Pairs, two at a time, leaving any odd Pair at the end.
+     * @param hands Hands to group
+     * @return New list holding the other Hands in order, then the Two Pairs, then any Pair left over
+     */
+    static ArrayList<Hand> groupPairs(List<Hand> hands) {
+        // Rebuild the list in one pass rather than removing pairs from the middle of it
+        ArrayList<Hand> grouped = new ArrayList<Hand>(hands.size());
+        ArrayList<Hand> twopairs = new ArrayList<Hand>();
+        Hand first = null;
+
+        for(Hand second : hands) {
+            if(!second.isPair()) {
+                grouped.add(second);
+            } else if(first == null) {
+                first = second;
+            } else {
+                Hand twopair = new Hand(HandType.TWO_PAIR);
+                twopair.addCard(first.getIndex(0));
+                twopair.addCard(first.getIndex(1));
+                twopair.addCard(second.getIndex(0));
+                twopair.addCard(second.getIndex(1));
+                twopairs.add(twopair);
+
+                first = null;
             }
         }
+
+        grouped.addAll(twopairs);
+        if(first != null)
+            grouped.add(first);
+        return grouped;
     }
 
     /**
      * Finds all pairs in the current list of cards.
      * @param cards Available cards to search
      */
-    private void checkPair(ArrayList<Card> cards) {
-        Hand h = new Hand(new ArrayList<Card>(), "Pair", PAIR);
-        Card current = new Card();
-        Card previous = new Card();
-        boolean reassignprevious = true;
-        for(int i = 0; i < cards.size(); i++) {
-            if(reassignprevious)
-                previous = current;
-            reassignprevious = true;
-            current = cards.get(i);
-
-            if(current.getNumber() == previous.getNumber() && current.getSuit() != previous.getSuit()) {
-                h.addCard(current);
-                h.addCard(previous);
-                reassignprevious = false;
-                totalhands.add(h);
-
-                cards.remove(current);
-                cards.remove(previous);
-                i -= 2;
-
-                checkPair(cards);
-                return;
-            }
+    void checkPair(Deck cards) {
+        for(int r = Deck.ACE; r >= Deck.TWO; r--) {
+            int copies = countHands(cards, r, 2);
+            takeSuits(cards, r, 2, copies, newHands(HandType.PAIR, copies));
+            pairsfound += copies;
         }
     }
 
@@ -586,42 +625,214 @@ public class HandFinder {
      * Checks for a "high card" hand, when no other hands can be found.
      * @param cards Remaining cards to be checked
      */
-    private void checkHighCard(ArrayList<Card> cards) {
-        if(cards.size() == 0)
+    void checkHighCard(Deck cards) {
+        for(int i = Deck.CARDS - 1; i >= 0; i--) {
+            int copies = cards.count(i);
+            Hand[] found = newHands(HandType.HIGH_CARD, copies);
+            cards.remove(i, copies);
+            if(found != null)
+                for(Hand h : found)
+                    h.addCard(i);
+        }
+    }
+
+    /**
+     * Counts the points for several copies of one kind of hand, and makes the empty Hands to fill if the hands are
+     * being kept.
+     * @param type Kind of hand
+     * @param copies Number of Hands
+     * @return New Hands, already added to the hands found, or null if only the points are being counted
+     */
+    private Hand[] newHands(HandType type, int copies) {
+        if(copies <= 0)
+            return null;
+        totalpoints += type.getPoints() * copies;
+        handcounts[type.ordinal()] += copies;
+        handsmade += copies;
+        if(!keephands)
+            return null;
+
+        Hand[] found = new Hand[copies];
+        for(int k = 0; k < copies; k++) {
+            found[k] = new Hand(type);
+            totalhands.add(found[k]);
+        }
+        return found;
+    }
+
+    /**
+     * Moves several copies of a row of numbers in one suit from the deck into Hands.
+     * @param cards Available cards to take from
+     * @param suit Suit of the row
+     * @param low Lowest number of the row, 0 for a Two
+     * @param length Number of cards in the row
+     * @param copies Number of copies of the row to take
+     * @param found Hands to add one row each to, or null if only the points are being counted
+     */
+    private static void takeRun(Deck cards, int suit, int low, int length, int copies, Hand[] found) {
+        if(copies <= 0)
             return;
+        for(int r = low + length - 1; r >= low; r--) {
+            cards.remove(Deck.indexOf(r, suit), copies);
+            if(found != null)
+                for(Hand h : found)
+                    h.addCard(Deck.indexOf(r, suit));
+        }
+    }
 
-        Hand h = new Hand(new ArrayList<Card>(), "High Card", SINGLE_CARD);
-        h.addCard(cards.remove(0));
-        totalhands.add(h);
-        checkHighCard(cards);
+    /**
+     * Counts how many hands could each take cards of one number in different suits.
+     * @param cards Available cards to search
+     * @param rank Number of the cards, 0 for a Two
+     * @param count How many different suits each hand needs
+     * @return Most hands that can be made
+     */
+    private static int countHands(Deck cards, int rank, int count) {
+        // h hands can be made when the suits can fill count * h places, each suit filling at most h of them
+        int low = 0;
+        int high = cards.rankCount(rank) / count;
+        while(low < high) {
+            int hands = (low + high + 1) / 2;
+            int places = 0;
+            for(int s = Deck.CLUBS; s <= Deck.SPADES; s++)
+                places += Math.min(hands, cards.count(rank, s));
+            if(places >= count * hands)
+                low = hands;
+            else
+                high = hands - 1;
+        }
+        return low;
     }
 
-    private int getTotalPoints() {
-        int totalpoints = 0;
-        for (Hand h : totalhands) {
-            if(!isdebugmode)
-                h.print();
-            totalpoints += h.getPoints();
+    /**
+     * Moves cards of one number and different suits from the deck into several Hands. The suits with the most copies
+     * are used first, which leaves the most different suits behind for later hands; ties go to spades first.
+     * @param cards Available cards to take from
+     * @param rank Number of the cards, 0 for a Two
+     * @param count How many different suits each Hand takes
+     * @param hands Number of Hands, no more than countHands allows
+     * @param found Hands to add the cards to, or null if only the points are being counted
+     */
+    private void takeSuits(Deck cards, int rank, int count, int hands, Hand[] found) {
+        if(hands <= 0)
+            return;
+
+        // Find the lowest level the suits can be cut down to, taking no more than one copy per Hand from each suit
+        int need = count * hands;
+        int low = 0;
+        int high = 0;
+        for(int s = Deck.CLUBS; s <= Deck.SPADES; s++)
+            high = Math.max(high, cards.count(rank, s));
+        while(low < high) {
+            int level = (low + high) / 2;
+            if(takenAbove(cards, rank, level, hands) <= need)
+                high = level;
+            else
+                low = level + 1;
+        }
+
+        // Cut each suit down to that level, then take what is still needed from suits sitting just above it
+        int left = need - takenAbove(cards, rank, low, hands);
+        for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+            int copies = cards.count(rank, s);
+            taken[s] = Math.min(hands, Math.max(0, copies - low));
+            if(left > 0 && low > 0 && copies >= low && copies - low < hands) {
+                taken[s]++;
+                left--;
+            }
+        }
+
+        // Deal the copies out in turn, so no Hand gets two cards of one suit
+        int next = 0;
+        for(int s = Deck.SPADES; s >= Deck.CLUBS; s--) {
+            cards.remove(Deck.indexOf(rank, s), taken[s]);
+            if(found != null)
+                for(int k = 0; k < taken[s]; k++)
+                    found[next++ % hands].addCard(Deck.indexOf(rank, s));
         }
+    }
+
+    /**
+     * Counts how many copies would be taken by cutting every suit of one number down to a level.
+     */
+    private static int takenAbove(Deck cards, int rank, int level, int hands) {
+        int total = 0;
+        for(int s = Deck.CLUBS; s <= Deck.SPADES; s++)
+            total += Math.min(hands, Math.max(0, cards.count(rank, s) - level));
+        return total;
+    }
+
+    /**
+     * Returns the total points of every hand found by the last search.
+     * @return Total points
+     */
+    public int getTotalPoints() {
         return totalpoints;
     }
 
+    /**
+     * Checks how many of one kind of hand the last search found.
+     * @param type Kind of hand
+     * @return Number of hands of that kind
+     */
+    public int getHandCount(HandType type) {
+        return handcounts[type.ordinal()];
+    }
+
+    /**
+     * Checks whether the last search proved its total is the best possible. This is false for the greedy pass, and
+     * also when the exact search was asked for but gave up or could not take a deck that large, so the total is the
+     * greedy one or the best split the search reached.
+     * @return True if the exact search finished
+     */
+    public boolean isProvedBest() {
+        return isprovedbest;
+    }
+
+    /**
+     * Returns the hands found by the last search.
+     * @return Hands making up the deck
+     */
+    public ArrayList<Hand> getHands() {
+        return totalhands;
+    }
+
+    /**
+     * Returns the hands found by the last search, each packed into a long by Hand.pack().
+     * @return Packed hands making up the deck
+     */
+    public long[] getPackedHands() {
+        long[] packed = new long[totalhands.size()];
+        for(int i = 0; i < packed.length; i++)
+            packed[i] = totalhands.get(i).pack();
+        return packed;
+    }
+
     public void print() {
         int totalpoints = this.getTotalPoints();
+        if(!isdebugmode && keephands) {
+            for (Hand h : totalhands)
+                h.print();
+        } else if(!isdebugmode) {
+            // Only the points were counted, so show how many of each kind of hand were found instead
+            for(int kind = HandType.count() - 1; kind >= 0; kind--) {
+                HandType type = HandType.fromOrdinal(kind);
+                if(handcounts[kind] > 0)
+                    System.out.println(type.getName() + " x" + handcounts[kind] + " " + type.getPoints() * handcounts[kind]);
+            }
+        }
 
         if(isdebugmode) {
             boolean testpass = totalpoints == debugpoints;
             System.out.println(testpass + " | " + this.debugname + " expects " + this.debugpoints + ", counted " + totalpoints);
         } else {
+            if(useexactsolver && !isprovedbest)
+                System.out.println("The exact search could not finish, so these may not be the best hands.");
             System.out.println("Total points: " + totalpoints);
         }
     }
 
-    public ArrayList<Card> cloneMasterList() {
-        ArrayList<Card> clonedlist = new ArrayList<Card>();
-        for(Card c : masterlist) {
-            clonedlist.add(new Card(c));
-        }
-        return clonedlist;
+    public Deck cloneDeck() {
+        return new Deck(deck);
     }
 }
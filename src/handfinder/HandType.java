@@ -0,0 +1,74 @@
+package handfinder;
+
+/**
+ * Every kind of hand that can be scored, from least to most valuable, with the name shown on output, the points it
+ * is worth, and how many cards it holds.
+ */
+public enum HandType {
+    HIGH_CARD("High Card", 10, 1),
+    PAIR("Pair", 25, 2),
+    TWO_PAIR("Two Pair", 50, 4),
+    THREE_OF_A_KIND("Three of a Kind", 60, 3),
+    STRAIGHT("Straight", 70, 5),
+    FLUSH("Flush", 80, 5),
+    FULL_HOUSE("Full House", 90, 5),
+    FOUR_OF_A_KIND("Four of a Kind", 100, 4),
+    STRAIGHT_FLUSH("Straight Flush", 150, 5),
+    ROYAL_FLUSH("Royal Flush", 300, 5),
+    ROYAL_FLUSH_IN_SPADES("Royal Flush in Spades", 400, 5),
+    EVERY_CARD_FLUSH("Every Card Flush", 1000, Deck.RANKS);
+
+    // values() copies its array every time, so keep one to look types up by ordinal
+    private static final HandType[] TYPES = values();
+
+    private final String handname;
+    private final int points;
+    private final int size;
+
+    HandType(String handname, int points, int size) {
+        this.handname = handname;
+        this.points = points;
+        this.size = size;
+    }
+
+    /**
+     * Returns the name of this kind of hand.
+     * @return Name shown on output, such as "Pair"
+     */
+    public String getName() {
+        return handname;
+    }
+
+    /**
+     * Returns the point value of this kind of hand.
+     * @return Points for one hand
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Checks how many cards this kind of hand holds.
+     * @return Number of cards
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Finds the kind of hand with a given ordinal.
+     * @param ordinal Position of the kind of hand, 0 for a High Card
+     * @return Kind of hand
+     */
+    public static HandType fromOrdinal(int ordinal) {
+        return TYPES[ordinal];
+    }
+
+    /**
+     * Checks how many kinds of hand there are.
+     * @return Number of kinds
+     */
+    public static int count() {
+        return TYPES.length;
+    }
+}
@@ -0,0 +1,119 @@
+package handfinder;
+
+import java.util.ArrayList;
+
+/**
+ * A deck that can be edited one card at a time and re-scored after every change, as a deck-building tool would.
+ *
+ * Edits only change the card counts. The score is worked out again the first time it is asked for after an edit,
+ * using HandFinder's points-only search, which takes each kind of hand in bulk; its cost depends on the 52 distinct
+ * cards rather than on how many copies the deck holds, so a deck of thousands of cards re-scores as quickly as a
+ * small one. The hand breakdown is only built when asked for.
+ */
+public class IncrementalDeck {
+    private Deck deck;
+    private HandFinder finder;
+    private int score;
+    private boolean isscored;
+    private boolean arehandsfound;
+
+    /**
+     * Constructor for an empty deck scored by the greedy pass.
+     */
+    public IncrementalDeck() {
+        this(new Deck(), false);
+    }
+
+    /**
+     * Main constructor.
+     * @param deck Cards to start from, which are copied
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only.
+     *                       The exact search is far slower, so each edit costs much more with it.
+     */
+    public IncrementalDeck(Deck deck, boolean useexactsolver) {
+        this.deck = new Deck(deck);
+        this.finder = new HandFinder(this.deck, useexactsolver);
+    }
+
+    /**
+     * Adds one copy of a Card.
+     * @param c Card to add
+     */
+    public void addCard(Card c) {
+        addCard(c.getIndex());
+    }
+
+    /**
+     * Adds one copy of a card.
+     * @param index Index of the card within a Deck
+     */
+    public void addCard(int index) {
+        deck.add(index);
+        isscored = false;
+        arehandsfound = false;
+    }
+
+    /**
+     * Removes one copy of a Card.
+     * @param c Card to remove
+     * @return True if a copy was removed, false if the deck held none
+     */
+    public boolean removeCard(Card c) {
+        return removeCard(c.getIndex());
+    }
+
+    /**
+     * Removes one copy of a card.
+     * @param index Index of the card within a Deck
+     * @return True if a copy was removed, false if the deck held none
+     */
+    public boolean removeCard(int index) {
+        if(!deck.remove(index))
+            return false;
+        isscored = false;
+        arehandsfound = false;
+        return true;
+    }
+
+    /**
+     * Finds the total points for the deck as it stands.
+     * @return Total points
+     */
+    public int currentScore() {
+        if(!isscored) {
+            score = finder.findPoints();
+            isscored = true;
+        }
+        return score;
+    }
+
+    /**
+     * Finds the hands making up the deck as it stands.
+     * @return Hands found, which should not be changed
+     */
+    public ArrayList<Hand> currentHands() {
+        if(!arehandsfound) {
+            score = finder.findHands();
+            isscored = true;
+            arehandsfound = true;
+        }
+        return finder.getHands();
+    }
+
+    /**
+     * Checks how many copies of a card are in the deck.
+     * @param index Index of the card within a Deck
+     * @return Number of copies
+     */
+    public int count(int index) {
+        return deck.count(index);
+    }
+
+    /**
+     * Checks the number of Cards in the deck.
+     * @return Number of Cards, counting every copy
+     */
+    public int size() {
+        return deck.size();
+    }
+}
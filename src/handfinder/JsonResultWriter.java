@@ -0,0 +1,87 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes each result as one JSON object on its own line, such as
+ * {"points":35,"counts":{"Pair":1,"High Card":1},"hands":[{"type":"Pair","points":25,"cards":["3d","3h"]},...]}.
+ * The counts leave out kinds of hand that were not found, and the hands are only written when findHands was used.
+ * A deck that could not be read is written as {"error":-12}.
+ */
+public class JsonResultWriter extends ResultWriter {
+    // Enough room for the longest Hand, or for the opening of a result and every count
+    private static final int MOST_PART_BYTES = 512;
+
+    private static final byte[] POINTS = ascii("{\"points\":");
+    private static final byte[] COUNTS = ascii(",\"counts\":{");
+    private static final byte[] HANDS = ascii(",\"hands\":[");
+    private static final byte[] TYPE = ascii("{\"type\":\"");
+    private static final byte[] HAND_POINTS = ascii("\",\"points\":");
+    private static final byte[] CARDS = ascii(",\"cards\":[");
+    private static final byte[] ERROR = ascii("{\"error\":");
+
+    /**
+     * Main constructor.
+     * @param channel Destination for the results
+     */
+    public JsonResultWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(HandFinder finder) throws IOException {
+        reserve(MOST_PART_BYTES);
+        buffer.put(POINTS);
+        putDecimal(finder.getTotalPoints());
+        buffer.put(COUNTS);
+        boolean isfirst = true;
+        for(int kind = HandType.count() - 1; kind >= 0; kind--) {
+            int found = finder.getHandCount(HandType.fromOrdinal(kind));
+            if(found == 0)
+                continue;
+            if(!isfirst)
+                buffer.put((byte) ',');
+            buffer.put((byte) '"').put(TYPE_NAMES[kind]).put((byte) '"').put((byte) ':');
+            putDecimal(found);
+            isfirst = false;
+        }
+        buffer.put((byte) '}');
+
+        if(!finder.getHands().isEmpty()) {
+            buffer.put(HANDS);
+            isfirst = true;
+            for(Hand h : finder.getHands()) {
+                reserve(MOST_PART_BYTES);
+                if(!isfirst)
+                    buffer.put((byte) ',');
+                buffer.put(TYPE).put(TYPE_NAMES[h.getType().ordinal()]).put(HAND_POINTS);
+                putDecimal(h.getPoints());
+                buffer.put(CARDS);
+                for(int i = 0; i < h.size(); i++) {
+                    if(i > 0)
+                        buffer.put((byte) ',');
+                    buffer.put((byte) '"').put(CARD_TEXT[h.getIndex(i)]).put((byte) '"');
+                }
+                buffer.put((byte) ']').put((byte) '}');
+                isfirst = false;
+            }
+            buffer.put((byte) ']');
+        }
+        reserve(2);
+        buffer.put((byte) '}').put((byte) '\n');
+    }
+
+    @Override
+    public void writeError(int code) throws IOException {
+        reserve(MOST_PART_BYTES);
+        buffer.put(ERROR);
+        putDecimal(code);
+        buffer.put((byte) '}').put((byte) '\n');
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
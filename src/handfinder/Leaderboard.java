@@ -0,0 +1,152 @@
+package handfinder;
+
+/**
+ * The best decks found by a CorpusRanker: the highest totals, and optionally the decks with the most of each kind of
+ * hand. Only deck numbers and scores are kept, never the decks or their Hands, so memory use depends on the size of
+ * the leaderboard and not on how many decks were ranked.
+ *
+ * A Leaderboard is not safe to share between threads. Each thread should keep its own and merge them once done.
+ */
+public class Leaderboard {
+    private final TopDecks top;
+    // Decks with the most hands of each kind, by HandType ordinal, or null if not tracked
+    private final TopDecks[] bytype;
+    private long scored;
+    private long skipped;
+    private long errors;
+
+    /**
+     * Main constructor.
+     * @param size Number of decks to keep on each list
+     * @param isbytype True to also keep the decks with the most of each kind of hand
+     */
+    public Leaderboard(int size, boolean isbytype) {
+        this.top = new TopDecks(size);
+        this.bytype = isbytype ? new TopDecks[HandType.count()] : null;
+        if(isbytype)
+            for(int kind = 0; kind < bytype.length; kind++)
+                bytype[kind] = new TopDecks(size);
+    }
+
+    /**
+     * Adds a scored deck.
+     * @param deck Number of the deck
+     * @param points Total points for the deck
+     * @param finder HandFinder that scored the deck, to count each kind of hand found
+     */
+    void add(long deck, int points, HandFinder finder) {
+        scored++;
+        top.offer(points, deck);
+        if(bytype == null)
+            return;
+        for(int kind = 0; kind < bytype.length; kind++) {
+            int found = finder.getHandCount(HandType.fromOrdinal(kind));
+            if(found > 0)
+                bytype[kind].offer(found, deck);
+        }
+    }
+
+    /**
+     * Checks whether a deck can be passed over without scoring it. Decks must be offered in increasing order of
+     * deck number, so that a later deck which only ties the weakest one kept would not get in either.
+     * @param upperbound Most the deck could score
+     * @return True if the deck could not make any list
+     */
+    boolean canSkip(int upperbound) {
+        return bytype == null && top.isFull() && upperbound <= top.getThreshold();
+    }
+
+    /**
+     * Counts a deck passed over because it could not make the list.
+     */
+    void skip() {
+        skipped++;
+    }
+
+    /**
+     * Counts a deck that could not be read.
+     */
+    void error() {
+        errors++;
+    }
+
+    /**
+     * Adds the lists and counts of another Leaderboard to this one.
+     * @param other Leaderboard with the same size and kinds of list
+     */
+    void merge(Leaderboard other) {
+        top.merge(other.top);
+        if(bytype != null)
+            for(int kind = 0; kind < bytype.length; kind++)
+                bytype[kind].merge(other.bytype[kind]);
+        scored += other.scored;
+        skipped += other.skipped;
+        errors += other.errors;
+    }
+
+    /**
+     * Returns the decks with the highest totals.
+     * @return Decks by total points
+     */
+    public TopDecks getTop() {
+        return top;
+    }
+
+    /**
+     * Returns the decks with the most of one kind of hand.
+     * @param type Kind of hand
+     * @return Decks by number of that kind of hand, or null if they were not tracked
+     */
+    public TopDecks getTop(HandType type) {
+        return bytype == null ? null : bytype[type.ordinal()];
+    }
+
+    /**
+     * Checks how many decks were fully scored.
+     * @return Number of decks
+     */
+    public long getScored() {
+        return scored;
+    }
+
+    /**
+     * Checks how many decks were passed over because their upper bound could not make the list.
+     * @return Number of decks
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Checks how many decks could not be read.
+     * @return Number of decks
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Prints each list, best first.
+     */
+    public void print() {
+        System.out.println("Decks scored: " + scored + "  skipped: " + skipped + "  unreadable: " + errors);
+        System.out.println(String.format("%-6s %12s %10s", "Rank", "Deck", "Points"));
+        printList(top);
+        if(bytype == null)
+            return;
+        for(int kind = bytype.length - 1; kind >= 0; kind--) {
+            if(bytype[kind].size() == 0)
+                continue;
+            System.out.println();
+            System.out.println(String.format("%-6s %12s %10s", "Rank", "Deck", HandType.fromOrdinal(kind).getName()));
+            printList(bytype[kind]);
+        }
+    }
+
+    private static void printList(TopDecks list) {
+        long[] entries = list.toSortedArray();
+        for(int i = 0; i < entries.length; i++)
+            System.out.println(String.format("%-6d %12d %10d", i + 1, TopDecks.deckOf(entries[i]),
+                    TopDecks.scoreOf(entries[i])));
+    }
+}
@@ -0,0 +1,106 @@
+package handfinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Draws random decks from a pool of one or more full 52-card decks and scores each one, to find how total scores and
+ * each kind of hand are spread.
+ *
+ * Every thread has its own random numbers, split from one seed so a run can be repeated, and its own pool, Deck,
+ * HandFinder and tallies, which are reused for every deck it draws. Nothing is shared while the decks are scored;
+ * the tallies are only added together once every thread is done.
+ */
+public class MonteCarloSimulator {
+    private int threads;
+    private boolean useexactsolver;
+    private int pooldecks;
+    private int decksize;
+    private long seed;
+
+    /**
+     * Main constructor.
+     * @param threads Number of decks to draw and score at once
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param pooldecks Number of full 52-card decks to draw from
+     * @param decksize Number of Cards in each deck drawn
+     * @param seed Seed for the random numbers, so a run can be repeated with the same number of threads
+     */
+    public MonteCarloSimulator(int threads, boolean useexactsolver, int pooldecks, int decksize, long seed) {
+        if(decksize < 0 || decksize > pooldecks * Deck.CARDS)
+            throw new IllegalArgumentException("Cannot draw " + decksize + " cards from " + pooldecks + " decks.");
+        this.threads = Math.max(1, threads);
+        this.useexactsolver = useexactsolver;
+        this.pooldecks = pooldecks;
+        this.decksize = decksize;
+        this.seed = seed;
+    }
+
+    /**
+     * Draws and scores random decks, split evenly across the threads.
+     * @param trials Number of decks to draw
+     * @return Summary of every deck drawn
+     * @throws Exception If a thread fails or is interrupted
+     */
+    public ScoreSummary run(long trials) throws Exception {
+        SplittableRandom master = new SplittableRandom(seed);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<Worker>> results = new ArrayList<>();
+        try {
+            for(int t = 0; t < threads; t++) {
+                long share = trials / threads + (t < trials % threads ? 1 : 0);
+                Worker worker = new Worker(master.split(), share);
+                results.add(workers.submit(worker, worker));
+            }
+
+            ScoreSummary summary = new ScoreSummary(decksize);
+            for(Future<Worker> result : results)
+                summary.merge(result.get().summary);
+            return summary;
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Draws and scores one thread's share of the decks, keeping its own tallies.
+     */
+    private class Worker implements Runnable {
+        private final SplittableRandom random;
+        private final long trials;
+        private final int[] pool;
+        private final Deck deck = new Deck();
+        private final HandFinder finder = new HandFinder(deck, useexactsolver);
+        private final ScoreSummary summary = new ScoreSummary(decksize);
+
+        Worker(SplittableRandom random, long trials) {
+            this.random = random;
+            this.trials = trials;
+            this.pool = new int[pooldecks * Deck.CARDS];
+            for(int i = 0; i < pool.length; i++)
+                pool[i] = i % Deck.CARDS;
+        }
+
+        @Override
+        public void run() {
+            for(long n = 0; n < trials; n++) {
+                // Shuffle only as far as the cards drawn. The pool stays a mix of the same cards, so it never needs
+                // to be reset between decks.
+                deck.clear();
+                for(int k = 0; k < decksize; k++) {
+                    int j = k + random.nextInt(pool.length - k);
+                    int card = pool[j];
+                    pool[j] = pool[k];
+                    pool[k] = card;
+                    deck.add(card);
+                }
+
+                summary.add(finder.findPoints(), finder);
+            }
+        }
+    }
+}
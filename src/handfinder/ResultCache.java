@@ -0,0 +1,107 @@
+package handfinder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of deck totals that may be shared between threads. Decks are looked up by how many copies they hold
+ * of each card, so a deck entered in a different order finds the same entry. The greedy pass can score decks with
+ * suits swapped around differently, so they are kept apart. A total the exact search proved best is the same for any
+ * swap of clubs, diamonds and hearts, so it is kept under the deck's canonical form and found by all of them. Once
+ * full, the deck used least recently is dropped.
+ */
+public class ResultCache {
+    private final LinkedHashMap<DeckKey, Integer> totals;
+    private final boolean useexactsolver;
+    private long hits;
+    private long misses;
+
+    /**
+     * Key built from the count vector of a deck, marked when it stands for every swap of the deck's suits.
+     */
+    private static final class DeckKey {
+        private final int[] counts;
+        private final boolean iscanonical;
+        private final int hash;
+
+        private DeckKey(Deck deck, boolean iscanonical) {
+            this.counts = deck.getCounts();
+            this.iscanonical = iscanonical;
+            this.hash = Arrays.hashCode(counts) * 2 + (iscanonical ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DeckKey && iscanonical == ((DeckKey) other).iscanonical
+                    && Arrays.equals(counts, ((DeckKey) other).counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Main constructor.
+     * @param capacity Most decks to remember
+     * @param useexactsolver True to score decks with the exact search, false for the greedy pass only
+     */
+    public ResultCache(final int capacity, boolean useexactsolver) {
+        this.useexactsolver = useexactsolver;
+        this.totals = new LinkedHashMap<DeckKey, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DeckKey, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Finds the total points for a deck, scoring it only if a deck with the same cards, or with the exact search a
+     * proved total for the same cards with suits swapped, has not been seen.
+     * @param deck Cards to score
+     * @return Total points for the deck
+     */
+    public int findPoints(Deck deck) {
+        DeckKey key = new DeckKey(deck, false);
+        DeckKey anysuits = useexactsolver ? new DeckKey(deck.canonical(), true) : null;
+        synchronized(this) {
+            Integer total = anysuits != null ? totals.get(anysuits) : null;
+            if(total == null)
+                total = totals.get(key);
+            if(total != null) {
+                hits++;
+                return total;
+            }
+            misses++;
+        }
+
+        // Score outside the lock, so other threads are only held up by lookups
+        EvaluationContext context = EvaluationContext.current(useexactsolver);
+        int total = context.evaluate(deck);
+        // A total the search gave up on may still be the greedy one, so it only stands for this deck
+        boolean isproved = context.getFinder().isProvedBest();
+        synchronized(this) {
+            totals.put(isproved ? anysuits : key, total);
+        }
+        return total;
+    }
+
+    /**
+     * Checks how many lookups found an equivalent deck already scored.
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Checks how many lookups had to score the deck.
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
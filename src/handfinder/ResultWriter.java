@@ -0,0 +1,119 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the result of scoring each deck in a machine-readable form. Results are written straight into one reusable
+ * byte buffer, which is sent to a channel in large blocks whenever it fills up, so nothing is formatted as a String
+ * along the way. Call flush once done; the channel is left open.
+ *
+ * Use create to pick a format: "text" for the total of each deck on its own line, "json" for one JSON object per
+ * line, or "binary" for fixed-width records.
+ */
+public abstract class ResultWriter {
+    public static final List<String> FORMATS = Collections.unmodifiableList(Arrays.asList("text", "json", "binary"));
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    // Text of each card and the name of each kind of hand, as bytes ready to copy out
+    protected static final byte[][] CARD_TEXT = new byte[Deck.CARDS][];
+    protected static final byte[][] TYPE_NAMES = new byte[HandType.count()][];
+    static {
+        for(int i = 0; i < Deck.CARDS; i++) {
+            Card c = Card.fromIndex(i);
+            CARD_TEXT[i] = (c.getFacevalue() + c.getSuit()).getBytes(StandardCharsets.US_ASCII);
+        }
+        for(int kind = 0; kind < HandType.count(); kind++)
+            TYPE_NAMES[kind] = HandType.fromOrdinal(kind).getName().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final WritableByteChannel channel;
+    // Digits of a number, filled from the end
+    private final byte[] digits = new byte[11];
+
+    /**
+     * Main constructor.
+     * @param channel Destination for the results
+     */
+    protected ResultWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Makes a writer for a named format.
+     * @param format "text", "json" or "binary"
+     * @param channel Destination for the results
+     * @return Writer for the format
+     */
+    public static ResultWriter create(String format, WritableByteChannel channel) {
+        switch(format) {
+            case "text":
+                return new TextResultWriter(channel);
+            case "json":
+                return new JsonResultWriter(channel);
+            case "binary":
+                return new BinaryResultWriter(channel);
+            default:
+                throw new IllegalArgumentException(format + " is not a valid output format.");
+        }
+    }
+
+    /**
+     * Writes the result of the last search made by a HandFinder. The Hands are written too if findHands was used.
+     * @param finder HandFinder that scored the deck
+     * @throws IOException If the channel cannot be written to
+     */
+    public abstract void write(HandFinder finder) throws IOException;
+
+    /**
+     * Writes the result for a deck that could not be read.
+     * @param code Negative error code from CardParser
+     * @throws IOException If the channel cannot be written to
+     */
+    public abstract void writeError(int code) throws IOException;
+
+    /**
+     * Sends everything written so far to the channel.
+     * @throws IOException If the channel cannot be written to
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Makes sure there is room in the buffer, flushing it first if needed.
+     * @param bytes Bytes about to be written, no more than the size of the buffer
+     * @throws IOException If the channel cannot be written to
+     */
+    protected void reserve(int bytes) throws IOException {
+        if(buffer.remaining() < bytes)
+            flush();
+    }
+
+    /**
+     * Writes a number as decimal digits.
+     * @param value Number to write
+     */
+    protected void putDecimal(int value) {
+        // Work with the negative value, which can hold every int
+        int left = value < 0 ? value : -value;
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' - left % 10);
+            left /= 10;
+        } while(left != 0);
+        if(value < 0)
+            buffer.put((byte) '-');
+        buffer.put(digits, start, digits.length - start);
+    }
+}
@@ -0,0 +1,135 @@
+package handfinder;
+
+/**
+ * Cheap bounds on the total score of a deck, for jobs that only need to fully score decks that could make the cut.
+ * The lower bound is the greedy total, which the exact search can only beat. The upper bound gives every card the
+ * most it could earn in any hand its rank and suit allow, looking only at which cards the deck holds, so it never
+ * takes more than a pass over the 52 distinct cards.
+ *
+ * Points are worked out per card, scaled by 26 so every hand splits evenly across its cards. A ScoreBounds is not
+ * safe to share between threads; keep one for each thread.
+ */
+public class ScoreBounds {
+    private static final int SCALE = 26;
+    private static final int PER_CARD_HIGH = 260;
+    private static final int PER_CARD_PAIR = 325;
+    private static final int PER_CARD_STRAIGHT = 364;
+    private static final int PER_CARD_FLUSH = 416;
+    private static final int PER_CARD_FULL_HOUSE = 468;
+    private static final int PER_CARD_THREE = 520;
+    private static final int PER_CARD_FOUR = 650;
+    private static final int PER_CARD_STRAIGHT_FLUSH = 780;
+    private static final int PER_CARD_ROYAL = 1560;
+    private static final int PER_CARD_EVERY_CARD = 2000;
+    private static final int PER_CARD_ROYAL_IN_SPADES = 2080;
+    // Every hand is worth a multiple of this many points
+    private static final int POINT_STEP = 5;
+
+    // Ranks covered by at least one run of five within each rank mask
+    private static final short[] RUN_COVER = new short[1 << Deck.RANKS];
+    static {
+        for(int mask = 0; mask <= Deck.ALL_RANKS_MASK; mask++)
+            for(int low = Deck.TWO; low <= Deck.TEN; low++)
+                if((mask & (Deck.RUN_MASK << low)) == Deck.RUN_MASK << low)
+                    RUN_COVER[mask] |= Deck.RUN_MASK << low;
+    }
+
+    private final Deck deck = new Deck();
+    private final HandFinder finder = new HandFinder(deck, false);
+
+    /**
+     * Finds a total the deck is sure to reach, by scoring it with the greedy pass alone. Nothing is allocated after
+     * the first call.
+     * @param cards Deck to score, which is not changed
+     * @return Greedy total, no more than the best total
+     */
+    public int lowerBound(Deck cards) {
+        deck.copyFrom(cards);
+        return finder.findPoints();
+    }
+
+    /**
+     * Finds a total the deck cannot beat, however it is split.
+     * @param cards Deck to bound
+     * @return Upper bound on the best total, a multiple of 5
+     */
+    public static int upperBound(Deck cards) {
+        int rankmask = cards.rankMask();
+        int threeranks = 0;
+        for(int r = 0; r < Deck.RANKS; r++)
+            if(cards.suitsOf(r) >= 3)
+                threeranks++;
+
+        long total = 0;
+        for(int s = 0; s < Deck.SUITS; s++) {
+            int suitmask = cards.suitMask(s);
+            int suitedruns = RUN_COVER[suitmask];
+            boolean isflush = Integer.bitCount(suitmask) >= 5;
+            // Every Card Flushes and Royal Flushes each take one copy of every card they hold
+            int everycard = Integer.MAX_VALUE;
+            int royals = Integer.MAX_VALUE;
+            for(int r = 0; r < Deck.RANKS; r++) {
+                everycard = Math.min(everycard, cards.count(r, s));
+                if(r >= Deck.TEN)
+                    royals = Math.min(royals, cards.count(r, s));
+            }
+            int royalshare = s == Deck.SPADES ? PER_CARD_ROYAL_IN_SPADES : PER_CARD_ROYAL;
+
+            for(int r = 0; r < Deck.RANKS; r++) {
+                int copies = cards.count(r, s);
+                if(copies == 0)
+                    continue;
+                int bit = 1 << r;
+                int suits = cards.suitsOf(r);
+
+                // Take the copies that could go to the most valuable hands first
+                int taken = 0;
+                if(royalshare > PER_CARD_EVERY_CARD && r >= Deck.TEN) {
+                    taken = Math.min(copies, royals);
+                    total += (long) taken * royalshare;
+                }
+                int every = Math.min(copies - taken, everycard);
+                total += (long) every * PER_CARD_EVERY_CARD;
+                taken += every;
+                if(royalshare < PER_CARD_EVERY_CARD && r >= Deck.TEN) {
+                    int royal = Math.min(copies - taken, royals);
+                    total += (long) royal * royalshare;
+                    taken += royal;
+                }
+
+                // Any number of Straight Flushes can share a card, so there is no limit on the copies they take
+                int rest;
+                if((suitedruns & bit) != 0) {
+                    rest = PER_CARD_STRAIGHT_FLUSH;
+                } else {
+                    if(suits == Deck.SUITS) {
+                        int fours = Math.min(copies - taken, quadsOf(cards, r));
+                        total += (long) fours * PER_CARD_FOUR;
+                        taken += fours;
+                    }
+                    rest = PER_CARD_HIGH;
+                    if(suits >= 3)
+                        rest = PER_CARD_THREE;
+                    else if(suits == 2)
+                        rest = threeranks > 0 ? PER_CARD_FULL_HOUSE : PER_CARD_PAIR;
+                    if(isflush)
+                        rest = Math.max(rest, PER_CARD_FLUSH);
+                    if((RUN_COVER[rankmask] & bit) != 0)
+                        rest = Math.max(rest, PER_CARD_STRAIGHT);
+                }
+                total += (long) (copies - taken) * rest;
+            }
+        }
+        return (int) (total / SCALE / POINT_STEP * POINT_STEP);
+    }
+
+    /**
+     * Finds how many Four of a Kinds a rank could make, one copy of each suit apiece.
+     */
+    private static int quadsOf(Deck cards, int rank) {
+        int quads = Integer.MAX_VALUE;
+        for(int s = 0; s < Deck.SUITS; s++)
+            quads = Math.min(quads, cards.count(rank, s));
+        return quads;
+    }
+}
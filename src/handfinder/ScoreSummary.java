@@ -0,0 +1,154 @@
+package handfinder;
+
+/**
+ * Tallies the total scores of many decks of one size, and how often each kind of hand was found in them, to show how
+ * scores are spread.
+ *
+ * A ScoreSummary is not safe to share between threads. Each thread should keep its own and merge them once done.
+ */
+public class ScoreSummary {
+    // Every hand is worth a multiple of this many points, so the score histogram only needs one slot per step
+    private static final int POINT_STEP = 5;
+    // No card can be worth more than this, as a Royal Flush in Spades is worth 400 points over 5 cards
+    private static final int MOST_POINTS_PER_CARD = 80;
+
+    private long trials;
+    private long[] histogram;
+    private long[] handtotals = new long[HandType.count()];
+    private long[] deckswithhand = new long[HandType.count()];
+
+    /**
+     * Main constructor.
+     * @param decksize Number of Cards in each deck tallied
+     */
+    public ScoreSummary(int decksize) {
+        this.histogram = new long[decksize * MOST_POINTS_PER_CARD / POINT_STEP + 1];
+    }
+
+    /**
+     * Tallies one deck.
+     * @param points Total points for the deck
+     * @param finder HandFinder that scored the deck, to count each kind of hand found
+     */
+    void add(int points, HandFinder finder) {
+        trials++;
+        histogram[points / POINT_STEP]++;
+        for(int kind = 0; kind < handtotals.length; kind++) {
+            int found = finder.getHandCount(HandType.fromOrdinal(kind));
+            handtotals[kind] += found;
+            if(found > 0)
+                deckswithhand[kind]++;
+        }
+    }
+
+    /**
+     * Adds the tallies of another summary of decks of the same size to this one.
+     * @param other Summary to add, which is not changed
+     */
+    void merge(ScoreSummary other) {
+        trials += other.trials;
+        for(int i = 0; i < histogram.length; i++)
+            histogram[i] += other.histogram[i];
+        for(int kind = 0; kind < handtotals.length; kind++) {
+            handtotals[kind] += other.handtotals[kind];
+            deckswithhand[kind] += other.deckswithhand[kind];
+        }
+    }
+
+    /**
+     * Checks how many decks were tallied.
+     * @return Number of decks
+     */
+    public long getTrials() {
+        return trials;
+    }
+
+    /**
+     * Checks how many decks scored exactly a given total.
+     * @param points Total points
+     * @return Number of decks with that total
+     */
+    public long getCount(int points) {
+        if(points < 0 || points % POINT_STEP != 0 || points / POINT_STEP >= histogram.length)
+            return 0;
+        return histogram[points / POINT_STEP];
+    }
+
+    /**
+     * Finds the average total score.
+     * @return Mean points per deck
+     */
+    public double getMean() {
+        double sum = 0;
+        for(int i = 0; i < histogram.length; i++)
+            sum += (double) histogram[i] * i * POINT_STEP;
+        return trials == 0 ? 0 : sum / trials;
+    }
+
+    /**
+     * Finds how far total scores are spread around the mean.
+     * @return Variance of the points per deck
+     */
+    public double getVariance() {
+        if(trials == 0)
+            return 0;
+        double mean = getMean();
+        double sum = 0;
+        for(int i = 0; i < histogram.length; i++) {
+            double difference = i * POINT_STEP - mean;
+            sum += histogram[i] * difference * difference;
+        }
+        return sum / trials;
+    }
+
+    /**
+     * Finds the total score that a given share of decks did not beat.
+     * @param percent Share of decks, from 0 to 100
+     * @return Lowest total score reached by at least that share of decks
+     */
+    public int getPercentile(double percent) {
+        long needed = (long) Math.ceil(trials * percent / 100.0);
+        long seen = 0;
+        for(int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if(seen >= needed && seen > 0)
+                return i * POINT_STEP;
+        }
+        return 0;
+    }
+
+    /**
+     * Finds how many of one kind of hand an average deck holds.
+     * @param type Kind of hand
+     * @return Mean number of hands of that kind per deck
+     */
+    public double getAverageHandCount(HandType type) {
+        return trials == 0 ? 0 : (double) handtotals[type.ordinal()] / trials;
+    }
+
+    /**
+     * Finds how often a deck holds at least one of a kind of hand.
+     * @param type Kind of hand
+     * @return Share of decks holding that kind of hand, from 0 to 1
+     */
+    public double getHandFrequency(HandType type) {
+        return trials == 0 ? 0 : (double) deckswithhand[type.ordinal()] / trials;
+    }
+
+    /**
+     * Prints the summary to System.out.
+     */
+    public void print() {
+        System.out.println("Decks scored: " + trials);
+        System.out.println(String.format("Mean: %.2f  Standard deviation: %.2f", getMean(), Math.sqrt(getVariance())));
+        System.out.println(String.format("Percentiles: 1%% %d  10%% %d  50%% %d  90%% %d  99%% %d  max %d",
+                getPercentile(1), getPercentile(10), getPercentile(50), getPercentile(90), getPercentile(99),
+                getPercentile(100)));
+        System.out.println(String.format("%-22s %14s %14s", "Hand", "Per deck", "Decks with"));
+        for(int kind = HandType.count() - 1; kind >= 0; kind--) {
+            HandType type = HandType.fromOrdinal(kind);
+            System.out.println(String.format("%-22s %14.4f %13.4f%%", type.getName(), getAverageHandCount(type),
+                    getHandFrequency(type) * 100));
+        }
+    }
+}
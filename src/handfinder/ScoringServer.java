@@ -0,0 +1,251 @@
+package handfinder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Long-running server that scores decks sent over a local TCP connection, so a JVM is only started once.
+ *
+ * Each line sent is one deck. The reply is one line per hand, such as "Pair 25 3d 3h", followed by
+ * "Total points: n" and an empty line. A deck holding a bad card gets "Error n" with the parser's error code and
+ * message instead, followed by an empty line. A line longer than MAX_LINE_CHARS gets "Error" and the limit, and the
+ * connection is closed, so a client cannot make the server hold an endless line in memory.
+ *
+ * Every connection is served on its own thread, using a virtual thread where the JVM has them. Each connection scores
+ * its decks with one HandFinder, so its Deck, the finder's working copy and the output buffers are reused from one deck
+ * to the next, and nothing is shared between connections. The exact search still builds a memo of up to about 40 MB
+ * for each deck, so only one exact search per processor runs at once, and other connections wait their turn.
+ */
+public class ScoringServer {
+    // Longest line read as one deck, which is room for over 300,000 cards
+    public static final int MAX_LINE_CHARS = 1 << 20;
+
+    private static final int READ_CHARS = 1 << 13;
+
+    private ServerSocket server;
+    private boolean useexactsolver;
+    // Taken while an exact search runs, so the memos of searches running at once stay bounded; null for greedy only
+    private final Semaphore exactsearches;
+    // Connections still open, so closing the server can drop them
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Reads lines into a reused builder, so no String is made for each deck and no line can grow past the limit.
+     */
+    private static final class LineReader {
+        private final Reader in;
+        private final char[] buffer = new char[READ_CHARS];
+        private int position;
+        private int limit;
+
+        LineReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next line, without its line break.
+         * @param line Builder to fill, which is emptied first
+         * @return False if the input ended before anything was read. If the line is too long, only the first
+         *         MAX_LINE_CHARS + 1 characters are read.
+         * @throws IOException If reading fails
+         */
+        boolean readLine(StringBuilder line) throws IOException {
+            line.setLength(0);
+            boolean isread = false;
+            while(line.length() <= MAX_LINE_CHARS) {
+                if(position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if(limit <= 0) {
+                        limit = 0;
+                        return isread;
+                    }
+                }
+                isread = true;
+                char c = buffer[position++];
+                if(c == '\n') {
+                    if(line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+                        line.setLength(line.length() - 1);
+                    return true;
+                }
+                line.append(c);
+            }
+            return true;
+        }
+
+        /**
+         * Checks whether another line can be started without waiting on the client.
+         * @return True if characters are ready to read
+         * @throws IOException If the reader is closed
+         */
+        boolean ready() throws IOException {
+            return position < limit || in.ready();
+        }
+    }
+
+    /**
+     * Main constructor, which listens on the loopback address only.
+     * @param port Port to listen on, or 0 to pick any free port
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @throws IOException If the port cannot be opened
+     */
+    public ScoringServer(int port, boolean useexactsolver) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.useexactsolver = useexactsolver;
+        this.exactsearches = useexactsolver ? new Semaphore(Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    /**
+     * Checks which port the server is listening on.
+     * @return Port number
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     * @throws IOException If accepting a connection fails for a reason other than the server closing
+     */
+    public void run() throws IOException {
+        ExecutorService connections = newConnectionExecutor();
+        try {
+            while(!server.isClosed()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    if(server.isClosed())
+                        break;
+                    throw e;
+                }
+                clients.add(socket);
+                // A connection accepted while the server was closing would be missed by close
+                if(server.isClosed()) {
+                    clients.remove(socket);
+                    socket.close();
+                    break;
+                }
+                connections.execute(() -> serve(socket));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops accepting connections, and closes every connection still open.
+     * @throws IOException If the server socket cannot be closed
+     */
+    public void close() throws IOException {
+        server.close();
+        for(Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // Dropped either way
+            }
+        }
+    }
+
+    /**
+     * Scores every deck sent over one connection until the client closes it.
+     * @param socket Connection to the client
+     */
+    private void serve(Socket socket) {
+        try (Socket client = socket) {
+            client.setTcpNoDelay(true);
+            LineReader in = new LineReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII));
+            Deck deck = new Deck();
+            HandFinder finder = new HandFinder(deck, useexactsolver);
+            StringBuilder line = new StringBuilder();
+            StringBuilder reply = new StringBuilder();
+
+            while(in.readLine(line)) {
+                if(line.length() > MAX_LINE_CHARS) {
+                    out.append("Error Line is longer than ").append(Integer.toString(MAX_LINE_CHARS))
+                            .append(" characters\n\n");
+                    break;
+                }
+                deck.clear();
+                reply.setLength(0);
+                score(line, deck, finder, reply);
+                out.append(reply);
+                // Flush only once the client has sent everything it had, so pipelined decks share a write
+                if(!in.ready())
+                    out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away, or the server closed the connection; nothing more to send it
+        } catch (InterruptedException e) {
+            // The server is closing while this connection waited for an exact search
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Scores one deck and writes the reply.
+     * @param line Cards separated by spaces
+     * @param deck Empty Deck to fill
+     * @param finder HandFinder bound to the deck
+     * @param reply Builder to write the reply to
+     * @throws InterruptedException If interrupted while waiting for another exact search to finish
+     */
+    private void score(CharSequence line, Deck deck, HandFinder finder, StringBuilder reply)
+            throws InterruptedException {
+        int read = CardParser.parseDeck(line, deck);
+        if(read < 0) {
+            reply.append("Error ").append(read).append(' ').append(CardParser.describeError(read)).append("\n\n");
+            return;
+        }
+
+        int totalpoints;
+        if(exactsearches == null) {
+            totalpoints = finder.findHands();
+        } else {
+            exactsearches.acquire();
+            try {
+                totalpoints = finder.findHands();
+            } finally {
+                exactsearches.release();
+            }
+        }
+        for(Hand h : finder.getHands()) {
+            h.describe(reply);
+            reply.append('\n');
+        }
+        reply.append("Total points: ").append(totalpoints).append("\n\n");
+    }
+
+    /**
+     * Makes an executor that starts a virtual thread per connection on JVMs that have them, or a cached pool of
+     * platform threads otherwise. Reflection keeps this building for older Java versions.
+     * @return Executor for connections
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
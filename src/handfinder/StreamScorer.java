@@ -0,0 +1,318 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scores an endless stream of decks, one per line, for use in a pipeline such as "cat decks | java ... -stream".
+ * Reading and parsing, scoring, and writing run as separate stages: parsing on the calling thread, scoring on a pool of
+ * worker threads, and writing on one more thread, in the same order as the input and in any ResultWriter format.
+ *
+ * The stages pass decks through a fixed ring of slots, each holding its own Deck and HandFinder, without any locks.
+ * Deck n always goes in slot n modulo the size of the ring, and each stage marks a slot as done by writing the deck's
+ * number to one of its volatile fields, which the next stage waits on. The reader cannot refill a slot until its
+ * result has been written, so a slow reader of the output holds the whole pipeline back instead of letting decks pile
+ * up in memory. Memory use stays the same however many decks go through.
+ *
+ * A stage that has to wait spins, then yields, and then parks until the stage it waits on moves on. Before parking it
+ * leaves its thread where that stage looks after each deck, and checks once more, so a deck moving on in between is
+ * never missed. An idle pipeline, such as one reading from a quiet pipe, uses no CPU at all.
+ */
+public class StreamScorer {
+    public static final int DEFAULT_SLOTS = 1 << 10;
+
+    private static final int READ_BYTES = 1 << 16;
+    // A stage that has to wait spins this many times, then yields as many times, before it parks
+    private static final int SPINS = 1 << 7;
+
+    private final int threads;
+    private final String format;
+    private final Slot[] slots;
+    private final int mask;
+
+    // Next deck a worker may claim, results written so far, and decks read once the input has ended
+    private final AtomicLong nextclaim = new AtomicLong();
+    private volatile long written;
+    private volatile long total = Long.MAX_VALUE;
+    private volatile Throwable failure;
+    // Reader parked until a result is written, and writer parked until a deck is scored
+    private volatile Thread parkedreader;
+    private volatile Thread parkedwriter;
+
+    /**
+     * One deck on its way through the pipeline.
+     */
+    private static final class Slot {
+        final Deck deck = new Deck();
+        final HandFinder finder;
+        // Cards read, or the parser's negative error code
+        int read;
+        // Number of the last deck parsed into this slot, and of the last deck scored in it
+        volatile long parsed = -1;
+        volatile long scored = -1;
+        // Worker parked until this slot is parsed. Workers waiting hold the claims just after the last deck parsed,
+        // and the ring holds more slots than there are workers, so no two of them wait on the same slot.
+        volatile Thread parkedworker;
+
+        Slot(boolean useexactsolver) {
+            this.finder = new HandFinder(deck, useexactsolver);
+        }
+    }
+
+    /**
+     * Constructor with the default number of slots.
+     * @param threads Number of worker threads that score decks
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param format "text", "json" or "binary", as for ResultWriter.create
+     */
+    public StreamScorer(int threads, boolean useexactsolver, String format) {
+        this(threads, useexactsolver, format, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Main constructor.
+     * @param threads Number of worker threads that score decks
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param format "text", "json" or "binary", as for ResultWriter.create
+     * @param slots Most decks in the pipeline at once, rounded up to a power of two that is more than threads
+     */
+    public StreamScorer(int threads, boolean useexactsolver, String format, int slots) {
+        if(!ResultWriter.FORMATS.contains(format))
+            throw new IllegalArgumentException(format + " is not a valid output format.");
+        this.threads = Math.max(1, threads);
+        this.format = format;
+        int size = Integer.highestOneBit(Math.max(Math.max(2, slots), this.threads + 1) * 2 - 1);
+        this.slots = new Slot[size];
+        for(int i = 0; i < size; i++)
+            this.slots[i] = new Slot(useexactsolver);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Scores every deck until the input ends. A StreamScorer can only be run once.
+     * @param in Decks, one per line
+     * @param out Destination for the results, which is left open
+     * @return Number of decks scored
+     * @throws IOException If reading or writing fails
+     * @throws InterruptedException If interrupted while waiting for the workers to finish
+     * @throws ExecutionException If a worker fails
+     */
+    public long run(ReadableByteChannel in, WritableByteChannel out)
+            throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        List<Future<Void>> stages = new ArrayList<>();
+        try {
+            for(int t = 0; t < threads; t++)
+                stages.add(pool.submit(guard(this::score)));
+            stages.add(pool.submit(guard(() -> write(ResultWriter.create(format, out)))));
+            try {
+                read(in);
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+                throw e;
+            }
+            for(Future<Void> stage : stages)
+                stage.get();
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads lines into slots in blocks, parsing each one straight from the bytes read.
+     */
+    private void read(ReadableByteChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+        long sequence = 0;
+        // Bytes before start were used already, and bytes before scanned hold no line break
+        int start = 0;
+        int scanned = 0;
+        boolean isended = false;
+        while(!isended && failure == null) {
+            if(!buffer.hasRemaining()) {
+                if(start > 0) {
+                    buffer.flip();
+                    buffer.position(start);
+                    buffer.compact();
+                    scanned -= start;
+                    start = 0;
+                } else {
+                    // A single line fills the buffer, so make room for the rest of it
+                    int used = buffer.position();
+                    buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.capacity() * 2));
+                    buffer.position(used);
+                }
+            }
+            isended = in.read(buffer) < 0;
+
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            for(; scanned < end; scanned++) {
+                if(bytes[scanned] == '\n') {
+                    publish(sequence++, bytes, start, scanned);
+                    start = scanned + 1;
+                }
+            }
+            if(isended && start < end)
+                publish(sequence++, bytes, start, end);
+        }
+        total = sequence;
+        wakeAll();
+    }
+
+    /**
+     * Parses one line into its slot, once the deck that last used the slot has been written.
+     */
+    private void publish(long sequence, byte[] bytes, int start, int end) {
+        for(int round = 0; sequence - written >= slots.length; round++) {
+            if(failure != null)
+                return;
+            if(pause(round))
+                continue;
+            parkedreader = Thread.currentThread();
+            if(sequence - written >= slots.length && failure == null)
+                LockSupport.park(this);
+            parkedreader = null;
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.deck.clear();
+        slot.read = CardParser.parseDeck(bytes, start, end, slot.deck);
+        slot.parsed = sequence;
+        wake(slot.parkedworker);
+    }
+
+    /**
+     * Claims decks one at a time as they are parsed, and scores them.
+     */
+    private void score() {
+        while(true) {
+            long sequence = nextclaim.getAndIncrement();
+            Slot slot = slots[(int) sequence & mask];
+            for(int round = 0; slot.parsed != sequence; round++) {
+                if(sequence >= total || failure != null || Thread.currentThread().isInterrupted())
+                    return;
+                if(pause(round))
+                    continue;
+                slot.parkedworker = Thread.currentThread();
+                if(slot.parsed != sequence && sequence < total && failure == null)
+                    LockSupport.park(this);
+                slot.parkedworker = null;
+            }
+            if(slot.read >= 0)
+                slot.finder.findPoints();
+            slot.scored = sequence;
+            wake(parkedwriter);
+        }
+    }
+
+    /**
+     * Writes each result in order as soon as it is scored, sending what is written to the channel whenever the next
+     * result is not ready yet.
+     */
+    private void write(ResultWriter writer) throws IOException {
+        for(long sequence = 0; ; sequence++) {
+            Slot slot = slots[(int) sequence & mask];
+            boolean isflushed = false;
+            for(int round = 0; slot.scored != sequence; round++) {
+                if(sequence >= total || failure != null || Thread.currentThread().isInterrupted()) {
+                    writer.flush();
+                    return;
+                }
+                if(!isflushed) {
+                    writer.flush();
+                    isflushed = true;
+                }
+                if(pause(round))
+                    continue;
+                parkedwriter = Thread.currentThread();
+                if(slot.scored != sequence && sequence < total && failure == null)
+                    LockSupport.park(this);
+                parkedwriter = null;
+            }
+            if(slot.read < 0)
+                writer.writeError(slot.read);
+            else
+                writer.write(slot.finder);
+            written = sequence + 1;
+            wake(parkedreader);
+        }
+    }
+
+    /**
+     * Waits a little while a stage has only waited a few rounds, spinning at first and then yielding.
+     * @param round Number of times the stage has waited already
+     * @return False once the stage has waited long enough that it should park until another stage wakes it
+     */
+    private static boolean pause(int round) {
+        if(round < SPINS)
+            return true;
+        if(round < 2 * SPINS) {
+            Thread.yield();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Wakes a parked stage, if there is one.
+     * @param thread Thread the stage left before parking, or null
+     */
+    private static void wake(Thread thread) {
+        if(thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Wakes every parked stage, once the input has ended or a stage has failed.
+     */
+    private void wakeAll() {
+        wake(parkedreader);
+        wake(parkedwriter);
+        for(Slot slot : slots)
+            wake(slot.parkedworker);
+    }
+
+    /**
+     * Marks the pipeline as failed and wakes every stage, so they all stop.
+     * @param e What went wrong
+     */
+    private void fail(Throwable e) {
+        failure = e;
+        wakeAll();
+    }
+
+    /**
+     * Interface for the work of one stage.
+     */
+    private interface Stage {
+        void run() throws IOException;
+    }
+
+    /**
+     * Wraps a stage so that if it fails, the other stages see it and stop too.
+     */
+    private Callable<Void> guard(Stage stage) {
+        return () -> {
+            try {
+                stage.run();
+                return null;
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+                throw e;
+            }
+        };
+    }
+}
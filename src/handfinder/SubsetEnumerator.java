@@ -0,0 +1,166 @@
+package handfinder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores every subset of a given size drawn from a pool of cards, such as all 7-card decks from one full deck, to
+ * find exactly how scores are spread rather than sampling them as MonteCarloSimulator does.
+ *
+ * Subsets are numbered in colex order, where subset r is the r-th set of pool positions when sets are compared by
+ * their highest position first. The numbers are split into ranges across a ForkJoinPool. Each range finds its first
+ * subset from its number, then steps to the next one by moving only the lowest positions that change, which is
+ * usually just one or two cards. Each step only adds and removes those cards from one Deck that the range keeps, and
+ * the range's HandFinder scores that same Deck every time.
+ *
+ * Copies of a card in the pool count as different cards, so a pool of two full decks holds each pair of copies as a
+ * separate subset.
+ */
+public class SubsetEnumerator {
+    // Subsets scored by each task before it stops splitting the work further
+    private static final long SUBSETS_PER_TASK = 1 << 16;
+
+    private ForkJoinPool pool;
+    private boolean useexactsolver;
+    private int[] cards;
+    private int subsetsize;
+    // binomials[n][k] is the number of ways to choose k of n cards
+    private long[][] binomials;
+
+    /**
+     * Constructor that uses the common ForkJoinPool and the greedy pass.
+     * @param cards Pool to draw subsets from
+     * @param subsetsize Number of Cards in each subset
+     */
+    public SubsetEnumerator(Deck cards, int subsetsize) {
+        this(ForkJoinPool.commonPool(), false, cards, subsetsize);
+    }
+
+    /**
+     * Main constructor.
+     * @param pool Pool to score the subsets on
+     * @param useexactsolver True to search for the highest-scoring set of hands, false for the greedy pass only
+     * @param cards Pool to draw subsets from, which is copied
+     * @param subsetsize Number of Cards in each subset
+     * @throws IllegalArgumentException If the subset size is out of range, or there are Long.MAX_VALUE or more subsets
+     */
+    public SubsetEnumerator(ForkJoinPool pool, boolean useexactsolver, Deck cards, int subsetsize) {
+        if(subsetsize < 0 || subsetsize > cards.size())
+            throw new IllegalArgumentException("Cannot choose " + subsetsize + " of " + cards.size() + " cards.");
+        this.pool = pool;
+        this.useexactsolver = useexactsolver;
+        this.subsetsize = subsetsize;
+
+        this.cards = new int[cards.size()];
+        int next = 0;
+        for(int i = 0; i < Deck.CARDS; i++)
+            for(int copy = 0; copy < cards.count(i); copy++)
+                this.cards[next++] = i;
+
+        // Only the columns up to the subset size are ever needed. Counts too large for a long are held at
+        // Long.MAX_VALUE, which is still more than any subset number, so unrank skips past them as it should.
+        binomials = new long[this.cards.length + 1][subsetsize + 1];
+        for(int n = 0; n <= this.cards.length; n++) {
+            binomials[n][0] = 1;
+            for(int k = 1; k <= Math.min(n, subsetsize); k++) {
+                long sum = binomials[n - 1][k - 1] + (k < n ? binomials[n - 1][k] : 0);
+                binomials[n][k] = sum < 0 ? Long.MAX_VALUE : sum;
+            }
+        }
+        if(countSubsets() == Long.MAX_VALUE)
+            throw new IllegalArgumentException("Cannot score " + Long.MAX_VALUE + " or more subsets, as choosing "
+                    + subsetsize + " of " + cards.size() + " cards would.");
+    }
+
+    /**
+     * Checks how many subsets there are to score.
+     * @return Number of subsets
+     */
+    public long countSubsets() {
+        return binomials[cards.length][subsetsize];
+    }
+
+    /**
+     * Scores every subset.
+     * @return Summary of every subset's score
+     */
+    public ScoreSummary run() {
+        return pool.invoke(new RangeTask(0, countSubsets()));
+    }
+
+    /**
+     * Finds the pool positions making up one subset.
+     * @param rank Number of the subset in colex order
+     * @param positions Array to fill with the positions, lowest first
+     */
+    void unrank(long rank, int[] positions) {
+        int n = cards.length;
+        for(int k = subsetsize; k > 0; k--) {
+            // Find the highest position whose count of earlier subsets still fits within the rank
+            n--;
+            while(binomials[n][k] > rank)
+                n--;
+            positions[k - 1] = n;
+            rank -= binomials[n][k];
+        }
+    }
+
+    /**
+     * Scores the subsets within a range of numbers, splitting the range in half until it is small.
+     */
+    private class RangeTask extends RecursiveTask<ScoreSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        RangeTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScoreSummary compute() {
+            if(to - from > SUBSETS_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                RangeTask upper = new RangeTask(middle, to);
+                upper.fork();
+                ScoreSummary summary = new RangeTask(from, middle).compute();
+                summary.merge(upper.join());
+                return summary;
+            }
+
+            ScoreSummary summary = new ScoreSummary(subsetsize);
+            int[] positions = new int[subsetsize + 1];
+            // Past the last position, so the step below never needs to check the end of the array
+            positions[subsetsize] = cards.length;
+            unrank(from, positions);
+
+            Deck deck = new Deck();
+            for(int k = 0; k < subsetsize; k++)
+                deck.add(cards[positions[k]]);
+            HandFinder finder = new HandFinder(deck, useexactsolver);
+
+            for(long rank = from; rank < to; rank++) {
+                summary.add(finder.findPoints(), finder);
+                if(rank + 1 == to)
+                    break;
+
+                // The next subset moves up the lowest position that has room, and drops every lower one to the bottom
+                int j = 0;
+                while(positions[j] + 1 == positions[j + 1])
+                    j++;
+                deck.remove(cards[positions[j]]);
+                deck.add(cards[++positions[j]]);
+                for(int k = 0; k < j; k++) {
+                    if(positions[k] != k) {
+                        deck.remove(cards[positions[k]]);
+                        deck.add(cards[k]);
+                        positions[k] = k;
+                    }
+                }
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package handfinder;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the total for each deck on its own line, or the negative error code for a deck that could not be read.
+ * When the Hands were found, each follows the total after a tab, such as "265\tPair 25 3d 3h\tHigh Card 10 5s".
+ */
+public class TextResultWriter extends ResultWriter {
+    // Enough room for the longest Hand: its name, its points and 13 cards
+    private static final int MOST_HAND_BYTES = 128;
+
+    /**
+     * Main constructor.
+     * @param channel Destination for the results
+     */
+    public TextResultWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void write(HandFinder finder) throws IOException {
+        reserve(MOST_HAND_BYTES);
+        putDecimal(finder.getTotalPoints());
+        for(Hand h : finder.getHands()) {
+            reserve(MOST_HAND_BYTES);
+            buffer.put((byte) '\t').put(TYPE_NAMES[h.getType().ordinal()]).put((byte) ' ');
+            putDecimal(h.getPoints());
+            for(int i = 0; i < h.size(); i++)
+                buffer.put((byte) ' ').put(CARD_TEXT[h.getIndex(i)]);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Writes just a total, for callers that do not have the HandFinder that found it.
+     * @param points Total points for the deck
+     * @throws IOException If the channel cannot be written to
+     */
+    public void writeTotal(int points) throws IOException {
+        reserve(MOST_HAND_BYTES);
+        putDecimal(points);
+        buffer.put((byte) '\n');
+    }
+
+    @Override
+    public void writeError(int code) throws IOException {
+        writeTotal(code);
+    }
+}
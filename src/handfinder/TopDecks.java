@@ -0,0 +1,138 @@
+package handfinder;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the highest-scoring decks offered to it, up to a fixed number, in a min-heap of primitive longs. Each entry
+ * packs a score into the high 32 bits and the deck number into the low 32 bits, flipped so that of two equal scores
+ * the lower deck number ranks higher. The weakest entry kept sits at the root, so a new deck only has to beat it.
+ *
+ * A TopDecks is not safe to share between threads. Each thread should keep its own and merge them once done.
+ */
+public class TopDecks {
+    private static final long DECK_MASK = 0xFFFFFFFFL;
+
+    private final long[] heap;
+    private int size;
+
+    /**
+     * Main constructor.
+     * @param capacity Most decks to keep
+     */
+    public TopDecks(int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("A leaderboard needs room for at least one deck.");
+        this.heap = new long[capacity];
+    }
+
+    /**
+     * Offers a deck, which is kept if there is room or it beats the weakest deck kept.
+     * @param score Score of the deck, no less than 0
+     * @param deck Number of the deck, from 0 to 2^32 - 1
+     * @return True if the deck was kept
+     */
+    public boolean offer(int score, long deck) {
+        return offer(((long) score << 32) | (DECK_MASK - deck));
+    }
+
+    private boolean offer(long entry) {
+        if(size < heap.length) {
+            int i = size++;
+            // Sift up
+            while(i > 0) {
+                int parent = (i - 1) >>> 1;
+                if(heap[parent] <= entry)
+                    break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+            return true;
+        }
+        if(entry <= heap[0])
+            return false;
+
+        // Replace the root and sift down
+        int i = 0;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size)
+                break;
+            if(child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if(heap[child] >= entry)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+        return true;
+    }
+
+    /**
+     * Checks whether every place is taken.
+     * @return True once capacity decks are kept
+     */
+    public boolean isFull() {
+        return size == heap.length;
+    }
+
+    /**
+     * Checks the score of the weakest deck kept. Once full, a new deck with a lower score cannot get in, and one
+     * with the same score only gets in with a lower deck number.
+     * @return Lowest score kept, or -1 if none are kept yet
+     */
+    public int getThreshold() {
+        return size == 0 ? -1 : scoreOf(heap[0]);
+    }
+
+    /**
+     * Checks how many decks are kept.
+     * @return Number of decks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers every deck kept by another TopDecks.
+     * @param other Decks to add
+     */
+    public void merge(TopDecks other) {
+        for(int i = 0; i < other.size; i++)
+            offer(other.heap[i]);
+    }
+
+    /**
+     * Lists the decks kept, best first.
+     * @return Entries packed as described above; use scoreOf and deckOf to read them
+     */
+    public long[] toSortedArray() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        for(int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            long swap = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = swap;
+        }
+        return sorted;
+    }
+
+    /**
+     * Reads the score from an entry of toSortedArray.
+     * @param entry Packed entry
+     * @return Score of the deck
+     */
+    public static int scoreOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Reads the deck number from an entry of toSortedArray.
+     * @param entry Packed entry
+     * @return Number of the deck
+     */
+    public static long deckOf(long entry) {
+        return DECK_MASK - (entry & DECK_MASK);
+    }
+}
@@ -1,5 +1,21 @@
 package handfinder;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
 /**
  * Class that helps log previous tests to see what works and what doesn't.
  */
@@ -16,12 +32,529 @@ public class UnitTestDriver {
         // total should be 265
         new HandFinder(fourofakindtest, true, 265);
 
+        String[] flushfirsttest = new String[] {"Flush Before Straights Test 1", "9h", "Ks", "2h", "Ah", "6s", "8h", "Jh", "Qc", "Qs", "5d", "10d", "As", "7d"};
+        // 9h Ks 2h Ah 6s 8h Jh Qc Qs 5d 10d As 7d
+        // flush = 80 "Ah", "Jh", "9h", "8h", "2h"
+        // pair = 25 "Qs", "Qc"
+        // six high cards = 60 [10 each] "As", "Ks", "10d", "7d", "6s", "5d"
+        // total should be 165. Decks held as card lists missed the flush and found two straights for 170 instead.
+        new HandFinder(flushfirsttest, true, 165);
+        // the exact search still finds the two straights
+        new HandFinder(flushfirsttest, true, 170, true);
+
+        // Each of these scored lower before decks were held as counts, when the detectors missed a hand
+        String[] secondsuitflushtest = new String[] {"Flush Of Another Suit Test 1", "As", "2h", "4h", "6h", "8h", "10h"};
+        // flush = 80 "10h", "8h", "6h", "4h", "2h", and a high card = 10 "As"
+        // total should be 90. The Flush was only looked for in the suit of the top card, so six high cards made 60.
+        new HandFinder(secondsuitflushtest, true, 90);
+        String[] fullhousetest = new String[] {"Full House Test 1", "7d", "7h", "8d", "8h", "7c"};
+        // full house = 90 "7d", "7h", "7c", "8d", "8h"
+        // total should be 90. A Three of a Kind and a Pair were found instead, for 85.
+        new HandFinder(fullhousetest, true, 90);
+        String[] pairtest = new String[] {"Pair After Straight Test 1", "3c", "2d", "4c", "2h", "6s", "5c", "2d"};
+        // straight = 70 "2d", "3c", "4c", "5c", "6s", and a pair = 25 "2h", "2d"
+        // total should be 95. The Pair left after the Straight was missed, and two high cards made 90.
+        new HandFinder(pairtest, true, 95);
+
+        int rejected = 0;
+        // Bad suits, a number out of range, and a face value that does not match its number
+        String[][] badcards = new String[][] {{"10", "x"}, {"10", "9"}, {"A", "s"}, {"J", "s"}};
+        int[] badnumbers = new int[] {10, 10, 15, 10};
+        for(int i = 0; i < badcards.length; i++) {
+            try {
+                new Card(badnumbers[i], badcards[i][1].charAt(0), badcards[i][0]);
+            } catch(IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        report("Card constructor rejecting bad cards", badcards.length, rejected);
+
+        // Half of two full decks makes more subsets than a long can count, and a size past the pool makes none
+        Deck pool = new Deck();
+        for(int i = 0; i < 2 * Deck.CARDS; i++)
+            pool.add(i % Deck.CARDS);
+        rejected = 0;
+        int[] badsizes = new int[] {Deck.CARDS, 2 * Deck.CARDS + 1};
+        for(int size : badsizes) {
+            try {
+                new SubsetEnumerator(pool, size);
+            } catch(IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        report("Subset enumerator rejecting sizes it cannot count", badsizes.length, rejected);
+        report("Subset enumerator counting 100 of 104 cards", 4598126, (int) new SubsetEnumerator(pool, 100)
+                .countSubsets());
+
         //Ac Kc Kh Qc Qd Qd Jc Js 10c 10s 10d 10c 10h 10h 10h 7d 7c 4d 4c 3d 3h
         // straight flush, 385 points
 
         //Ac Kc Kh Qc Qd Qd Jc Js 10c 10s 10d 10c 10h 10h 10h 7d 7c 4d 4c 3d 3h
         // royal flush, 535
 
+        checkParser();
+        checkExactSolver();
+        checkResultCache();
+        checkPackedHands();
+        checkCorpus();
+    }
+
+    public static void main(String[] args) {
+        new UnitTestDriver();
+    }
+
+    /**
+     * Checks the exact search against trying every split of small random decks, and that it finishes on full-size
+     * ones.
+     */
+    private void checkExactSolver() {
+        Random random = new Random(1);
+        int decks = 300;
+        int matched = 0;
+        for(int d = 0; d < decks; d++) {
+            // Half the decks are drawn from a few high cards of two suits, so they are full of runs and Flushes
+            boolean isnarrow = d % 2 == 0;
+            int[] counts = new int[Deck.CARDS];
+            for(int n = 1 + random.nextInt(12); n > 0; n--) {
+                if(isnarrow)
+                    counts[Deck.indexOf(Deck.ACE - random.nextInt(7), Deck.HEARTS + random.nextInt(2))]++;
+                else
+                    counts[random.nextInt(Deck.CARDS)]++;
+            }
+            ExactSolver solver = new ExactSolver(counts);
+            int best = solver.solve(0);
+            int expected = bruteForce(counts, new HashMap<String, Integer>());
+            if(solver.isFinished() && best == expected && isSplitOf(solver.buildHands(best), counts, best))
+                matched++;
+            else
+                report("Exact solver on " + Arrays.toString(counts), expected, best);
+        }
+        report("Exact solver matching brute force on decks of 1 to 12 cards", decks, matched);
+
+        decks = 20;
+        int finished = 0;
+        for(int d = 0; d < decks; d++) {
+            Deck deck = new Deck();
+            for(int n = 52 + random.nextInt(49); n > 0; n--)
+                deck.add(random.nextInt(Deck.CARDS));
+            int greedy = new HandFinder(new Deck(deck), false).findPoints();
+            ExactSolver solver = new ExactSolver(deck.getCounts());
+            int best = solver.solve(greedy);
+            if(solver.isFinished() && best >= greedy && (best == greedy || isSplitOf(solver.buildHands(best),
+                    deck.getCounts(), best)))
+                finished++;
+        }
+        report("Exact solver finishing decks of 52 to 100 cards", decks, finished);
+
+        // Decks from two suits are priced well above their best split, so the search may give up, but must say so
+        decks = 4;
+        int reported = 0;
+        for(int d = 0; d < decks; d++) {
+            int first = random.nextInt(Deck.SUITS);
+            int second = (first + 1 + random.nextInt(Deck.SUITS - 1)) % Deck.SUITS;
+            Deck deck = new Deck();
+            for(int n = 52 + random.nextInt(49); n > 0; n--)
+                deck.add(Deck.indexOf(random.nextInt(Deck.RANKS), random.nextBoolean() ? first : second));
+            int greedy = new HandFinder(new Deck(deck), false).findPoints();
+            HandFinder finder = new HandFinder(new Deck(deck), true);
+            int best = finder.findHands();
+            ExactSolver solver = new ExactSolver(deck.getCounts());
+            solver.solve(greedy);
+            if(finder.isProvedBest() == solver.isFinished() && best >= greedy
+                    && isSplitOf(finder.getHands(), deck.getCounts(), best))
+                reported++;
+        }
+        Deck deck = new Deck();
+        for(int n = ExactSolver.MAX_COPIES + 1; n > 0; n--)
+            deck.add(Deck.indexOf(Deck.ACE, Deck.SPADES));
+        HandFinder finder = new HandFinder(deck, true);
+        if(finder.findPoints() == new HandFinder(new Deck(deck), false).findPoints() && !finder.isProvedBest())
+            reported++;
+        report("Exact search saying whether it finished on decks from two suits and decks too large", decks + 1,
+                reported);
+    }
+
+    /**
+     * Checks that a batch scored through the cache gets the same total on every line as one scored without it. The
+     * batch repeats decks in a different order and with clubs, diamonds and hearts swapped, which the greedy pass can
+     * score differently.
+     */
+    private void checkResultCache() {
+        Random random = new Random(2);
+        ArrayList<String> lines = new ArrayList<String>();
+        lines.add("7h 7s 10d 3d 7c Jh Kd 8h 2s 8c Js Jc 8d 10d 9d");
+        for(int d = 0; d < 200; d++) {
+            ArrayList<Card> cards = new ArrayList<Card>();
+            for(int n = 5 + random.nextInt(48); n > 0; n--)
+                cards.add(Card.fromIndex(random.nextInt(Deck.CARDS)));
+            lines.add(toLine(cards));
+            // Swap two of clubs, diamonds and hearts
+            int first = random.nextInt(3);
+            int second = (first + 1 + random.nextInt(2)) % 3;
+            ArrayList<Card> swapped = new ArrayList<Card>();
+            for(Card c : cards) {
+                int suit = c.getIndex() % Deck.SUITS;
+                int to = suit == first ? second : suit == second ? first : suit;
+                swapped.add(Card.fromIndex(c.getIndex() - suit + to));
+            }
+            lines.add(toLine(swapped));
+            Collections.shuffle(cards, random);
+            lines.add(toLine(cards));
+        }
+        lines.add("7d 7s 10h 3h 7c Jd Kh 8d 2s 8c Js Jc 8h 10h 9h");
+        StringBuilder corpus = new StringBuilder();
+        for(String line : lines)
+            corpus.append(line).append('\n');
+
+        String[] uncached = scoreBatch(corpus, 0);
+        String[] cached = scoreBatch(corpus, 64);
+        int matched = 0;
+        for(int i = 0; i < Math.min(uncached.length, cached.length); i++) {
+            if(uncached[i].equals(cached[i]))
+                matched++;
+            else
+                System.out.println("false | Cache on " + lines.get(i) + " expects " + uncached[i] + ", counted "
+                        + cached[i]);
+        }
+        report("Cached batch matching uncached batch line by line", lines.size(), matched);
+
+        // The exact search is symmetric in clubs, diamonds and hearts, so a swapped deck finds the proved total
+        ResultCache cache = new ResultCache(64, true);
+        EvaluationContext uncachedexact = new EvaluationContext(true);
+        int decks = 20;
+        matched = 0;
+        for(int d = 0; d < decks; d++) {
+            Deck deck = new Deck();
+            Deck swapped = new Deck();
+            for(int n = 5 + random.nextInt(26); n > 0; n--) {
+                int index = random.nextInt(Deck.CARDS);
+                int suit = Deck.suitOf(index);
+                deck.add(index);
+                swapped.add(suit == Deck.SPADES ? index : index - suit + (suit + 1) % Deck.SPADES);
+            }
+            cache.findPoints(deck);
+            if(cache.findPoints(swapped) == uncachedexact.evaluate(swapped))
+                matched++;
+        }
+        report("Exact cache matching uncached exact totals on suit-swapped decks", decks, matched);
+        report("Exact cache finding suit-swapped decks already scored", decks, (int) cache.getHits());
+    }
+
+    /**
+     * Checks that text, bytes and a ByteBuffer read the same cards, or fail with the same error, and that face values
+     * and suits are read in either case.
+     */
+    private void checkParser() {
+        String[][] decks = new String[][] {
+                {"As Kh Qd Jc 10s 2h", "as kH qD jc 10S 2h"},
+                {"Jd\tQd  Kd Ad 10d", "jd\tqD  KD ad 10D"},
+                {"10x", null}, {"1s", null}, {"11s", null}, {"Xs", null}, {"As Ks Bs", null}};
+        int lines = 0;
+        int matched = 0;
+        for(String[] pair : decks) {
+            for(String line : pair) {
+                if(line == null)
+                    continue;
+                lines++;
+                Deck fromtext = new Deck();
+                Deck frombytes = new Deck();
+                Deck frombuffer = new Deck();
+                byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                int read = CardParser.parseDeck(line, fromtext);
+                boolean issame = read == CardParser.parseDeck(bytes, 0, bytes.length, frombytes)
+                        && read == CardParser.parseDeck(ByteBuffer.wrap(bytes), 0, bytes.length, frombuffer)
+                        && Arrays.equals(fromtext.getCounts(), frombytes.getCounts())
+                        && Arrays.equals(fromtext.getCounts(), frombuffer.getCounts());
+                // A line in lower case must read the same cards as the first line of its pair
+                Deck expected = new Deck();
+                int expectedread = CardParser.parseDeck(pair[0], expected);
+                if(issame && read == expectedread && Arrays.equals(expected.getCounts(), fromtext.getCounts())
+                        && (pair[1] != null) == (read > 0))
+                    matched++;
+                else
+                    System.out.println("false | Parser on \"" + line + "\" read " + read);
+            }
+        }
+        report("Parser reading text, bytes and buffers alike, in either case", lines, matched);
+    }
+
+    /**
+     * Checks that packing a Hand and unpacking it again gives back the same kind of hand with the same cards, for the
+     * hands the greedy pass finds in random decks and for an Every Card Flush in each suit, whose cards go in any
+     * order.
+     */
+    private void checkPackedHands() {
+        Random random = new Random(3);
+        ArrayList<Hand> hands = new ArrayList<Hand>();
+        for(int d = 0; d < 100; d++) {
+            Deck deck = new Deck();
+            for(int n = 13 + random.nextInt(88); n > 0; n--)
+                deck.add(random.nextInt(Deck.CARDS));
+            HandFinder finder = new HandFinder(deck, false);
+            finder.findHands();
+            hands.addAll(finder.getHands());
+        }
+        for(int suit = 0; suit < Deck.SUITS; suit++) {
+            ArrayList<Card> cards = new ArrayList<Card>();
+            for(int r = 0; r < Deck.RANKS; r++)
+                cards.add(Card.fromIndex(Deck.indexOf(r, suit)));
+            Collections.shuffle(cards, random);
+            hands.add(new Hand(cards, HandType.EVERY_CARD_FLUSH));
+        }
+
+        boolean[] seen = new boolean[HandType.values().length];
+        int matched = 0;
+        for(Hand hand : hands) {
+            long packed = hand.pack();
+            Hand unpacked = new Hand(packed);
+            // Rebuilt from the unpacked cards, so packing it again really packs them instead of the stored long
+            Hand rebuilt = new Hand(unpacked.getHand(), unpacked.getType());
+            if(unpacked.getType() == hand.getType() && unpacked.size() == hand.size()
+                    && Arrays.equals(sortedIndices(unpacked), sortedIndices(hand)) && unpacked.isValid()
+                    && rebuilt.pack() == packed && Arrays.equals(indices(rebuilt), indices(unpacked)))
+                matched++;
+            else
+                report("Packing " + describe(hand), 1, 0);
+            seen[hand.getType().ordinal()] = true;
+        }
+        report("Hands matching once packed and unpacked", hands.size(), matched);
+
+        // Equal Every Card Flushes pack the same, whatever order their cards were added in
+        ArrayList<Card> inorder = new ArrayList<Card>();
+        for(int r = 0; r < Deck.RANKS; r++)
+            inorder.add(Card.fromIndex(Deck.indexOf(r, Deck.HEARTS)));
+        ArrayList<Card> shuffled = new ArrayList<Card>(inorder);
+        Collections.shuffle(shuffled, random);
+        long first = new Hand(inorder, HandType.EVERY_CARD_FLUSH).pack();
+        long second = new Hand(shuffled, HandType.EVERY_CARD_FLUSH).pack();
+        report("Every Card Flushes packing the same", 1, first == second ? 1 : 0);
+        int types = 0;
+        for(boolean isseen : seen)
+            if(isseen)
+                types++;
+        report("Kinds of hand packed", seen.length, types);
+    }
+
+    /**
+     * Checks that a corpus with more decks than the writer keeps offsets for in memory reads back the same, that a
+     * corpus still being written, cut short or aborted is turned away, and that converting text keeps a line holding
+     * a byte that is not ASCII as an error.
+     */
+    private void checkCorpus() {
+        Random random = new Random(4);
+        Path path = null;
+        Path text = null;
+        try {
+            path = Files.createTempFile("handfinder", ".corpus");
+            text = Files.createTempFile("handfinder", ".txt");
+            int decks = 20000;
+            ArrayList<int[]> written = new ArrayList<int[]>();
+            int matched = 0;
+            boolean isrejected;
+            try (DeckCorpusWriter writer = new DeckCorpusWriter(path)) {
+                for(int d = 0; d < decks; d++) {
+                    Deck deck = new Deck();
+                    // Mostly small decks stored card by card, with some large ones stored as counts and some errors
+                    for(int n = d % 7 == 0 ? 200 : 1 + random.nextInt(20); n > 0; n--)
+                        deck.add(random.nextInt(Deck.CARDS));
+                    if(d % 11 == 0) {
+                        writer.addError(CardParser.ERROR_SUIT);
+                        written.add(null);
+                    } else {
+                        writer.add(deck);
+                        written.add(deck.getCounts());
+                    }
+                }
+                isrejected = isRejected(path);
+            }
+            report("Corpus rejected while still being written", 1, isrejected ? 1 : 0);
+
+            try (DeckCorpus corpus = new DeckCorpus(path)) {
+                for(int d = 0; d < decks; d++) {
+                    Deck deck = new Deck();
+                    int read = corpus.read(d, deck);
+                    int[] expected = written.get(d);
+                    if(expected == null ? read == CardParser.ERROR_SUIT : Arrays.equals(expected, deck.getCounts()))
+                        matched++;
+                }
+                report("Corpus decks read back", decks, (int) corpus.size() == decks ? matched : -1);
+            }
+
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                file.truncate(file.size() - Long.BYTES);
+            }
+            report("Corpus rejected once cut short", 1, isRejected(path) ? 1 : 0);
+
+            try (DeckCorpusWriter writer = new DeckCorpusWriter(path)) {
+                Deck deck = new Deck();
+                deck.add(0);
+                writer.add(deck);
+                writer.abort();
+            }
+            report("Corpus rejected once aborted", 1, isRejected(path) ? 1 : 0);
+
+            Files.write(text, new byte[] {'A', 'c', ' ', 'K', 'h', '\n', '2', 'c', ' ', (byte) 0xC3, (byte) 0xA9, '\n',
+                    '3', 'd', '\r', '\n'});
+            long converted = DeckCorpusWriter.convert(text, path);
+            int[] reads = new int[3];
+            try (DeckCorpus corpus = new DeckCorpus(path)) {
+                for(int d = 0; d < reads.length && d < corpus.size(); d++)
+                    reads[d] = corpus.read(d, new Deck());
+            }
+            report("Converted lines with a byte that is not ASCII", 3,
+                    converted == 3 && reads[0] == 2 && reads[1] < 0 && reads[2] == 1 ? 3 : (int) converted);
+        } catch(IOException e) {
+            System.out.println("false | Corpus failed: " + e);
+        } finally {
+            try {
+                if(path != null)
+                    Files.deleteIfExists(path);
+                if(text != null)
+                    Files.deleteIfExists(text);
+            } catch(IOException e) {
+                // Left in the temporary directory
+            }
+        }
+    }
+
+    /**
+     * Checks whether DeckCorpus refuses to open a file.
+     */
+    private static boolean isRejected(Path path) {
+        try {
+            new DeckCorpus(path).close();
+            return false;
+        } catch(IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Writes a Hand as one line, such as "Pair 25 3d 3h".
+     */
+    private static String describe(Hand hand) {
+        StringBuilder text = new StringBuilder();
+        hand.describe(text);
+        return text.toString();
+    }
+
+    /**
+     * Lists the Deck indices of a Hand's cards, in the order the Hand holds them.
+     */
+    private static int[] indices(Hand hand) {
+        int[] indices = new int[hand.size()];
+        for(int i = 0; i < indices.length; i++)
+            indices[i] = hand.getIndex(i);
+        return indices;
+    }
+
+    /**
+     * Lists the Deck indices of a Hand's cards in order.
+     */
+    private static int[] sortedIndices(Hand hand) {
+        int[] indices = indices(hand);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /**
+     * Scores a batch of decks with the greedy pass.
+     * @param corpus Decks, one per line
+     * @param cachesize Most decks to remember, or 0 for no cache
+     * @return Total for each line, or an empty array if the batch fails
+     */
+    private static String[] scoreBatch(CharSequence corpus, int cachesize) {
+        StringWriter out = new StringWriter();
+        try {
+            new BatchFinder(2, false, cachesize).run(new BufferedReader(new StringReader(corpus.toString())), out);
+        } catch(Exception e) {
+            System.out.println("false | Batch failed: " + e);
+            return new String[0];
+        }
+        return out.toString().split("\n");
+    }
+
+    /**
+     * Writes cards as one line of a batch file.
+     */
+    private static String toLine(ArrayList<Card> cards) {
+        StringBuilder line = new StringBuilder();
+        for(Card c : cards) {
+            if(line.length() > 0)
+                line.append(' ');
+            line.append(c.getFacevalue()).append(c.getSuit());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Finds the best total of a deck by trying every group of cards the lowest card could go to.
+     * @param counts Copies of each card, which are put back as they were
+     * @param memo Best total of each deck already tried
+     * @return Best total
+     */
+    private static int bruteForce(int[] counts, HashMap<String, Integer> memo) {
+        int lowest = 0;
+        while(lowest < Deck.CARDS && counts[lowest] == 0)
+            lowest++;
+        if(lowest == Deck.CARDS)
+            return 0;
+        String key = Arrays.toString(counts);
+        Integer known = memo.get(key);
+        if(known != null)
+            return known;
+
+        int[] group = new int[Deck.RANKS];
+        group[0] = lowest;
+        counts[lowest]--;
+        int best = bestGroup(counts, memo, group, 1, lowest + 1);
+        counts[lowest]++;
+        memo.put(key, best);
+        return best;
+    }
+
+    /**
+     * Scores the group if it makes a hand, then tries adding each later card to it.
+     */
+    private static int bestGroup(int[] counts, HashMap<String, Integer> memo, int[] group, int size, int from) {
+        int best = Integer.MIN_VALUE;
+        HandType type = HandClassifier.classify(group, size);
+        if(type != null)
+            best = type.getPoints() + bruteForce(counts, memo);
+        if(size == Deck.RANKS)
+            return best;
+        for(int c = from; c < Deck.CARDS; c++) {
+            // Past five cards, only an Every Card Flush is left to make
+            if(counts[c] == 0 || (size >= HandClassifier.MAX_GROUP && Deck.suitOf(c) != Deck.suitOf(group[0])))
+                continue;
+            group[size] = c;
+            counts[c]--;
+            best = Math.max(best, bestGroup(counts, memo, group, size + 1, c + 1));
+            counts[c]++;
+        }
+        return best;
+    }
+
+    /**
+     * Checks that hands are all valid, add up to a total, and use every card of a deck exactly once.
+     */
+    private static boolean isSplitOf(ArrayList<Hand> hands, int[] counts, int total) {
+        int[] used = new int[Deck.CARDS];
+        int points = 0;
+        for(Hand h : hands) {
+            if(!h.isValid())
+                return false;
+            points += h.getPoints();
+            for(int i = 0; i < h.size(); i++)
+                used[h.getIndex(i)]++;
+        }
+        return points == total && Arrays.equals(used, counts);
+    }
 
+    /**
+     * Prints a result in the same form as the debug mode of HandFinder.
+     */
+    private static void report(String name, int expected, int counted) {
+        System.out.println((expected == counted) + " | " + name + " expects " + expected + ", counted " + counted);
     }
 }
\ No newline at end of file